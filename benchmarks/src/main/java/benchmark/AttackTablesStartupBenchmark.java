@@ -0,0 +1,23 @@
+package benchmark;
+
+import MoveRules.AttackTables;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building the attack tables. Each fork is a fresh JVM, and the single call in it
+ * triggers the tables' class initialization.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class AttackTablesStartupBenchmark {
+
+    @Benchmark
+    public long classInit() {
+        return AttackTables.rook(0, 0L);
+    }
+}
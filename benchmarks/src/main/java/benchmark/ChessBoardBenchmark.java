@@ -0,0 +1,44 @@
+package benchmark;
+
+import chess.ChessBoard;
+import chess.Fen;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessBoardBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private ChessBoard board;
+    private ChessBoard sameBoard;
+    private final ChessBoard resetTarget = new ChessBoard();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = Fen.parse(Positions.fen(phase)).getBoard();
+        sameBoard = Fen.parse(Positions.fen(phase)).getBoard();
+    }
+
+    @Benchmark
+    public ChessBoard resetBoard() {
+        resetTarget.resetBoard();
+        return resetTarget;
+    }
+
+    @Benchmark
+    public int boardHashCode() {
+        return board.hashCode();
+    }
+
+    @Benchmark
+    public boolean boardEquals() {
+        return board.equals(sameBoard);
+    }
+}
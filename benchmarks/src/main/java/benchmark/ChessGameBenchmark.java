@@ -0,0 +1,90 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessGameBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private ChessGame game;
+    private final List<ChessPosition> pieces = new ArrayList<>();
+    private final MoveBuffer moves = new MoveBuffer();
+    private ChessMove move;
+    private int packedMove;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = Fen.parse(Positions.fen(phase));
+        for (int square = 0; square < 64; square++) {
+            ChessPiece piece = game.getBoard().getPiece(square);
+            if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                pieces.add(ChessPosition.of(square));
+                if (move == null && !game.validMoves(ChessPosition.of(square)).isEmpty()) {
+                    move = game.validMoves(ChessPosition.of(square)).iterator().next();
+                    packedMove = PackedMove.fromChessMove(move);
+                }
+            }
+        }
+    }
+
+    /**
+     * Valid moves for every piece of the side to move, through the Collection API
+     */
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (ChessPosition position : pieces) {
+            blackhole.consume(game.validMoves(position));
+        }
+    }
+
+    /**
+     * Valid moves for every piece of the side to move, into a reused buffer
+     */
+    @Benchmark
+    public int validMovesBuffer() {
+        moves.clear();
+        for (ChessPosition position : pieces) {
+            game.validMoves(position.toSquare(), moves);
+        }
+        return moves.size();
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInCheckmate() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    /**
+     * Validates and plays a move, then takes it back so every call starts from the same position
+     */
+    @Benchmark
+    public ChessGame makeMove() throws InvalidMoveException {
+        game.makeMove(move);
+        game.undoMove();
+        return game;
+    }
+
+    @Benchmark
+    public ChessGame doUndoMove() {
+        game.doMove(packedMove);
+        game.undoMove();
+        return game;
+    }
+}
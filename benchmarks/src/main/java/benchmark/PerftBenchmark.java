@@ -0,0 +1,37 @@
+package benchmark;
+
+import chess.Fen;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation throughput: perft counts every leaf of the move tree, so nodes/s is
+ * the node count divided by the time per operation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    @Param({"3"})
+    public int depth;
+
+    private Perft perft;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        perft = new Perft(Fen.parse(Positions.fen(phase)), depth);
+    }
+
+    @Benchmark
+    public long perft() {
+        return perft.perft(depth);
+    }
+}
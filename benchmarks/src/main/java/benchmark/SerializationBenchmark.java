@@ -0,0 +1,39 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"opening", "middlegame", "endgame"})
+    public String phase;
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        game = Fen.parse(Positions.fen(phase));
+        json = gson.toJson(game);
+    }
+
+    @Benchmark
+    public String gsonToJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gsonFromJson() {
+        return gson.fromJson(json, ChessGame.class);
+    }
+}
@@ -8,7 +8,7 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPosition;
 import chess.ChessPiece;
-import client.ServerFacade.GameData;
+import model.GameSummary;
 import ui.BoardPrinter;
 
 public class ChessClient implements WebSocketFacade.GameHandler {
@@ -18,7 +18,7 @@ public class ChessClient implements WebSocketFacade.GameHandler {
     private State state = State.LOGGED_OUT;
     private String username = null;
     private String authToken = null;
-    private GameData[] games = null;
+    private GameSummary[] games = null;
 
     private WebSocketFacade ws;
     private ChessGame currentGame = null;
@@ -247,7 +247,7 @@ public class ChessClient implements WebSocketFacade.GameHandler {
             return;
         }
 
-        GameData game = games[gameNum - 1];
+        GameSummary game = games[gameNum - 1];
         server.joinGame(color, game.gameID());
         
         playerColor = color.equals("WHITE") ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
@@ -280,7 +280,7 @@ public class ChessClient implements WebSocketFacade.GameHandler {
             return;
         }
 
-        GameData game = games[gameNum - 1];
+        GameSummary game = games[gameNum - 1];
         currentGameID = game.gameID();
         playerColor = null;
 
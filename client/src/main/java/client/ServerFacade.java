@@ -1,8 +1,12 @@
 package client;
 
 import com.google.gson.Gson;
+import model.GameQuery;
+import model.GameSummary;
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 
 public class ServerFacade {
@@ -77,8 +81,29 @@ public class ServerFacade {
         return serverRequest("POST", "/game", request, GameData.class);
     }
 
+    /**
+     * Lists every game, asking for as many pages as it takes
+     */
     public Games games() throws Exception {
-        return serverRequest("GET", "/game", null, Games.class);
+        return games(GameQuery.MAX_LIMIT);
+    }
+
+    /**
+     * Lists every game, asking for pageSize games at a time
+     */
+    public Games games(int pageSize) throws Exception {
+        var games = new ArrayList<GameSummary>();
+        String path = "/game?limit=" + pageSize;
+        while (true) {
+            Games page = serverRequest("GET", path, null, Games.class);
+            if (page.games() != null) {
+                games.addAll(Arrays.asList(page.games()));
+            }
+            if (page.nextCursor() == null) {
+                return new Games(games.toArray(new GameSummary[0]), null);
+            }
+            path = "/game?limit=" + pageSize + "&after=" + page.nextCursor();
+        }
     }
 
     public void joinGame(String playerColor, int gameID) throws Exception {
@@ -93,6 +118,6 @@ public class ServerFacade {
 
     public record AuthData(String authToken, String username) {}
     public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, chess.ChessGame game) {}
-    public record Games(GameData[] games) {}
+    public record Games(GameSummary[] games, Integer nextCursor) {}
 
 }
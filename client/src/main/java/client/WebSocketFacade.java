@@ -2,13 +2,16 @@ package client;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import jakarta.websocket.Endpoint;
 import jakarta.websocket.Session;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 
@@ -21,6 +24,12 @@ public class WebSocketFacade extends Endpoint {
     private Session session;
     private final Gson gson = new Gson();
     private GameHandler gameHandler;
+    private String authToken;
+    private int gameID;
+    // our copy of the game, which MOVE messages are played on
+    private ChessGame game;
+    // set between asking for the whole game and getting it, so later moves don't ask again
+    private boolean resyncing;
 
     public interface GameHandler {
         void gameUpdate(ChessGame game);
@@ -48,8 +57,11 @@ public class WebSocketFacade extends Endpoint {
         switch (serverMessage.getServerMessageType()) {
             case LOAD_GAME -> {
                 LoadGameMessage loadGame = gson.fromJson(message, LoadGameMessage.class);
-                gameHandler.gameUpdate(loadGame.getGame());
+                game = loadGame.getGame();
+                resyncing = false;
+                gameHandler.gameUpdate(game);
             }
+            case MOVE -> applyMove(gson.fromJson(message, MoveMessage.class));
             case ERROR -> {
                 ErrorMessage error = gson.fromJson(message, ErrorMessage.class);
                 gameHandler.message("Error: " + error.getErrorMessage());
@@ -61,12 +73,53 @@ public class WebSocketFacade extends Endpoint {
         }
     }
 
+    /**
+     * Plays the move on our copy of the game, or asks for the whole game if the copy
+     * has missed a move or doesn't end up in the position the server is in
+     */
+    private void applyMove(MoveMessage moveMessage) {
+        if (resyncing) {
+            return;
+        }
+        if (game == null || game.getPly() != moveMessage.getPly() - 1) {
+            resync();
+            return;
+        }
+        try {
+            game.makeMove(moveMessage.getMove());
+        } catch (InvalidMoveException e) {
+            resync();
+            return;
+        }
+        if (game.getZobristKey() != moveMessage.getHash()) {
+            resync();
+            return;
+        }
+        ChessGame.TeamColor toMove = game.getTeamTurn();
+        if (game.isInCheckmate(toMove) || game.isInStalemate(toMove)) {
+            game.setGameOver(true);
+        }
+        gameHandler.gameUpdate(game);
+    }
+
+    private void resync() {
+        resyncing = true;
+        try {
+            sendCommand(new UserGameCommand(UserGameCommand.CommandType.RESYNC, authToken, gameID));
+        } catch (IOException e) {
+            resyncing = false;
+            gameHandler.message("Error: unable to reload the game");
+        }
+    }
+
     @Override
     public void onOpen(Session session, EndpointConfig config) {
     }
 
     public void connect(String authToken, int gameID) throws IOException {
-        var command = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authToken, gameID);
+        this.authToken = authToken;
+        this.gameID = gameID;
+        var command = new ConnectCommand(authToken, gameID, true);
         sendCommand(command);
     }
 
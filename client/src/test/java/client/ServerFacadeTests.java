@@ -101,6 +101,16 @@ public class ServerFacadeTests {
         assertEquals(2, games.games().length);
     }
     @Test
+    void gamesFollowsEveryPage() throws Exception{
+        facade.register("player1", "password", "player1@email.com");
+        for (int i = 0; i < 5; i++) {
+            facade.createGame("game" + i);
+        }
+        var games = facade.games(2);
+        assertEquals(5, games.games().length);
+        assertNull(games.nextCursor());
+    }
+    @Test
     void gamesFails() throws Exception{
         assertThrows(Exception.class,() -> {
           facade.games();
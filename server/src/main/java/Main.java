@@ -1,9 +1,44 @@
+import dataaccess.DataAccess;
+import dataaccess.MemoryAccess;
+import dataaccess.PasswordHasher;
 import server.Server;
+import server.websocket.ConnectionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Properties;
 
 public class Main {
     public static void main(String[] args) {
-        Server server = new Server();
+        // "memory" keeps everything in this process, for games that don't need to survive a restart
+        boolean inMemory = Arrays.stream(args).anyMatch("memory"::equalsIgnoreCase);
+        // "platform-threads" handles requests on Jetty's thread pool instead of virtual threads
+        boolean virtualThreads = Arrays.stream(args).noneMatch("platform-threads"::equalsIgnoreCase);
+        Properties settings = settings();
+        // set before any store exists, so memory mode gets the same password.* settings
+        PasswordHasher.configure(PasswordHasher.Settings.from(settings));
+        DataAccess dataAccess = inMemory ? new MemoryAccess() : Server.mysql();
+        var connections = new ConnectionManager(ConnectionManager.Settings.from(settings));
+        Server server = new Server(dataAccess, virtualThreads, connections);
         int port = server.run(8080);
-        System.out.println("♕ Chess Server running on port " + port);
+        System.out.println("♕ Chess Server running on port " + port + (inMemory ? " (in memory)" : "")
+                + (virtualThreads ? "" : " (platform threads)"));
+    }
+
+    /**
+     * @return db.properties if there is one, with any -D system properties on top
+     */
+    private static Properties settings() {
+        Properties props = new Properties();
+        try (var stream = Main.class.getClassLoader().getResourceAsStream("db.properties")) {
+            if (stream != null) {
+                props.load(stream);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to read db.properties", e);
+        }
+        props.putAll(System.getProperties());
+        return props;
     }
-}
\ No newline at end of file
+}
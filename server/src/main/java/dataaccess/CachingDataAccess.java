@@ -0,0 +1,360 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.AuthData;
+import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
+import model.UserData;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps recently used games and auth tokens in memory in front of another DataAccess.
+ * Reads are served from the cache when possible and loaded through the delegate otherwise;
+ * writes go to the delegate first and then update the cache. Users pass straight through.
+ * <p>
+ * Callers change the ChessGame they get back (makeMove plays on it directly), so games
+ * are copied on the way in and on the way out. Writes and cache misses for a game hold
+ * that game's lock, so a slow load can't put back a game older than one just written.
+ * <p>
+ * Tokens are cached for a TTL, and unknown tokens for a shorter one so a flood of bad
+ * tokens doesn't reach the database either. A lookup that raced with a logout or clear
+ * drops what it cached, so a removed token stops working as soon as authRemove returns.
+ */
+public class CachingDataAccess implements DataAccess {
+    private static final int LOCK_STRIPES = 256;
+
+    public record Stats(long hits, long misses, long evictions, int size, int capacity,
+                        long authHits, long authMisses, int authSize) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        public double authHitRate() {
+            long total = authHits + authMisses;
+            return total == 0 ? 0 : (double) authHits / total;
+        }
+    }
+
+    /**
+     * @param auth null if the token is unknown
+     */
+    private record Token(AuthData auth, long expiresAt) {
+    }
+
+    private final DataAccess delegate;
+    private final int capacity;
+    private final Map<Integer, GameData> games;
+    // not monitors, since they are held across database calls and would pin virtual threads
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final int tokenCapacity;
+    private final long tokenTtlNanos;
+    private final long unknownTokenTtlNanos;
+    // bumped by every token removal, so a lookup can tell it may have cached a removed token
+    private final AtomicLong tokenRemovals = new AtomicLong();
+    private final AtomicLong authHits = new AtomicLong();
+    private final AtomicLong authMisses = new AtomicLong();
+
+    public CachingDataAccess(DataAccess delegate, int capacity) {
+        this(delegate, capacity, 4 * capacity, Duration.ofMinutes(10), Duration.ofSeconds(5));
+    }
+
+    public CachingDataAccess(DataAccess delegate, int capacity, int tokenCapacity, Duration tokenTtl,
+                             Duration unknownTokenTtl) {
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.tokenCapacity = tokenCapacity;
+        this.tokenTtlNanos = tokenTtl.toNanos();
+        this.unknownTokenTtlNanos = unknownTokenTtl.toNanos();
+        // access order, so the eldest entry is the least recently used
+        this.games = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, GameData> eldest) {
+                if (size() > CachingDataAccess.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (games) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), games.size(), capacity,
+                    authHits.get(), authMisses.get(), tokens.size());
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        // every stripe, so no game load that read the store before the clear can cache it after
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            delegate.clear();
+        } finally {
+            synchronized (games) {
+                games.clear();
+            }
+            tokenRemovals.incrementAndGet();
+            tokens.clear();
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        delegate.createUser(user);
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        return delegate.getUser(username);
+    }
+
+    @Override
+    public void auth(AuthData auth) throws DataAccessException {
+        delegate.auth(auth);
+        cacheToken(auth.authToken(), new Token(auth, System.nanoTime() + tokenTtlNanos));
+    }
+
+    @Override
+    public AuthData getAuth(String authToken) throws DataAccessException {
+        if (authToken == null) {
+            return delegate.getAuth(null);
+        }
+        Token cached = tokens.get(authToken);
+        if (cached != null && cached.expiresAt() - System.nanoTime() > 0) {
+            authHits.incrementAndGet();
+            return cached.auth();
+        }
+
+        authMisses.incrementAndGet();
+        long removals = tokenRemovals.get();
+        AuthData auth = delegate.getAuth(authToken);
+        Token token = new Token(auth, System.nanoTime() + (auth == null ? unknownTokenTtlNanos : tokenTtlNanos));
+        cacheToken(authToken, token);
+        if (tokenRemovals.get() != removals) {
+            // a removal ran while we were loading, so what we read may already be gone
+            tokens.remove(authToken, token);
+        }
+        return auth;
+    }
+
+    @Override
+    public void authRemove(String authToken) throws DataAccessException {
+        try {
+            delegate.authRemove(authToken);
+        } finally {
+            tokenRemovals.incrementAndGet();
+            tokens.remove(authToken);
+        }
+    }
+
+    @Override
+    public int newGame(GameData game) throws DataAccessException {
+        int gameID = delegate.newGame(game);
+        put(new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
+        return gameID;
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        GameData cached = cached(gameID);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return copy(cached);
+        }
+
+        ReentrantLock lock = lock(gameID);
+        lock.lock();
+        try {
+            // another thread may have loaded or written it while we waited
+            cached = cached(gameID);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copy(cached);
+            }
+            misses.incrementAndGet();
+            GameData loaded = delegate.getGame(gameID);
+            if (loaded != null) {
+                put(loaded);
+            }
+            return loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<GameSummary> games() throws DataAccessException {
+        return delegate.games();
+    }
+
+    @Override
+    public List<GameSummary> games(GameQuery query) throws DataAccessException {
+        return delegate.games(query);
+    }
+
+    @Override
+    public void gameUpdate(GameData game) throws DataAccessException {
+        ReentrantLock lock = lock(game.gameID());
+        lock.lock();
+        try {
+            try {
+                delegate.gameUpdate(game);
+            } catch (DataAccessException e) {
+                invalidate(game.gameID());
+                throw e;
+            }
+            put(game);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void gameStateUpdate(int gameID, ChessGame game) throws DataAccessException {
+        ReentrantLock lock = lock(gameID);
+        lock.lock();
+        try {
+            try {
+                delegate.gameStateUpdate(gameID, game);
+            } catch (DataAccessException e) {
+                invalidate(gameID);
+                throw e;
+            }
+            synchronized (games) {
+                GameData cached = games.get(gameID);
+                if (cached != null) {
+                    games.put(gameID, new GameData(gameID, cached.whiteUsername(), cached.blackUsername(),
+                            cached.gameName(), new ChessGame(game)));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void gameMove(GameData game, int move) throws DataAccessException {
+        ReentrantLock lock = lock(game.gameID());
+        lock.lock();
+        try {
+            try {
+                delegate.gameMove(game, move);
+            } catch (DataAccessException e) {
+                invalidate(game.gameID());
+                throw e;
+            }
+            put(game);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean compareAndSetPlayers(int gameID, String expectedWhite, String expectedBlack,
+                                        String white, String black) throws DataAccessException {
+        ReentrantLock lock = lock(gameID);
+        lock.lock();
+        try {
+            boolean swapped;
+            try {
+                swapped = delegate.compareAndSetPlayers(gameID, expectedWhite, expectedBlack, white, black);
+            } catch (DataAccessException e) {
+                invalidate(gameID);
+                throw e;
+            }
+            synchronized (games) {
+                GameData cached = games.get(gameID);
+                if (swapped && cached != null) {
+                    games.put(gameID, new GameData(gameID, white, black, cached.gameName(), cached.game()));
+                } else if (!swapped) {
+                    // our copy may be what made the caller expect the wrong players
+                    games.remove(gameID);
+                }
+            }
+            return swapped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cacheToken(String authToken, Token token) {
+        tokens.put(authToken, token);
+        if (tokens.size() > tokenCapacity) {
+            trimTokens();
+        }
+    }
+
+    /**
+     * Drops expired tokens, then any others needed to get back under capacity. The map
+     * isn't ordered, so which live tokens go is arbitrary; they are simply loaded again
+     */
+    private synchronized void trimTokens() {
+        long now = System.nanoTime();
+        tokens.values().removeIf(token -> token.expiresAt() - now <= 0);
+        Iterator<String> iterator = tokens.keySet().iterator();
+        while (tokens.size() > tokenCapacity * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private ReentrantLock lock(int gameID) {
+        return locks[Math.floorMod(gameID, LOCK_STRIPES)];
+    }
+
+    private GameData cached(int gameID) {
+        synchronized (games) {
+            return games.get(gameID);
+        }
+    }
+
+    private void put(GameData game) {
+        GameData copy = copy(game);
+        synchronized (games) {
+            games.put(copy.gameID(), copy);
+        }
+    }
+
+    private void invalidate(int gameID) {
+        synchronized (games) {
+            games.remove(gameID);
+        }
+    }
+
+    private static GameData copy(GameData game) {
+        ChessGame chessGame = game.game() == null ? null : new ChessGame(game.game());
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
+    }
+}
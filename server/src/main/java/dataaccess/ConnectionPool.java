@@ -0,0 +1,316 @@
+package dataaccess;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of JDBC connections. Callers get a wrapped connection whose close()
+ * hands the real one back to the pool, so existing try-with-resources code keeps working.
+ * <p>
+ * At most {@code size} connections are out at once; further callers wait up to
+ * {@code waitTimeout} before failing. Connections that have sat idle for a while are
+ * checked with isValid before being handed out, connections idle longer than
+ * {@code idleTimeout} are closed by a background sweep, and a connection held longer
+ * than {@code leakThreshold} is reported once with the stack that borrowed it.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionPool.class);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    public record Settings(int size, long waitTimeoutMillis, long validateAfterMillis, int validationTimeoutSeconds,
+                           long idleTimeoutMillis, long leakThresholdMillis) {
+        public static Settings defaults() {
+            return new Settings(10, 5_000, 5_000, 2, 60_000, 0);
+        }
+
+        /**
+         * Reads the db.pool.* keys, falling back to the defaults for any that are missing
+         */
+        public static Settings from(Properties props) {
+            Settings d = defaults();
+            return new Settings(
+                    Integer.parseInt(props.getProperty("db.pool.size", String.valueOf(d.size))),
+                    Long.parseLong(props.getProperty("db.pool.waitTimeoutMillis", String.valueOf(d.waitTimeoutMillis))),
+                    Long.parseLong(props.getProperty("db.pool.validateAfterMillis", String.valueOf(d.validateAfterMillis))),
+                    Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", String.valueOf(d.validationTimeoutSeconds))),
+                    Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", String.valueOf(d.idleTimeoutMillis))),
+                    Long.parseLong(props.getProperty("db.pool.leakThresholdMillis", String.valueOf(d.leakThresholdMillis))));
+        }
+    }
+
+    /**
+     * @param created       physical connections opened since the pool started
+     * @param createdPerSecond created averaged over the pool's lifetime
+     * @param averageWaitMillis mean time a borrow waited for a free slot and a connection
+     */
+    public record Stats(int size, int active, int idle, long created, long closed, long borrowed, long timeouts,
+                        long leaks, double averageWaitMillis, double maxWaitMillis, double createdPerSecond) {
+    }
+
+    private final ConnectionFactory factory;
+    private final Settings settings;
+    private final Semaphore permits;
+    private final Deque<Idle> idle = new ArrayDeque<>();
+    private final Set<Borrowed> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sweeper;
+    private final long startedAt = System.nanoTime();
+    private volatile boolean closed;
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private record Idle(Connection connection, long returnedAt) {
+    }
+
+    public ConnectionPool(ConnectionFactory factory, Settings settings) {
+        if (settings.size() < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1");
+        }
+        this.factory = factory;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.size(), true);
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, Math.min(settings.idleTimeoutMillis(),
+                settings.leakThresholdMillis() > 0 ? settings.leakThresholdMillis() : Long.MAX_VALUE) / 2);
+        sweeper.scheduleAtFixedRate(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands out a pooled connection. Closing it returns it to the pool.
+     */
+    public Connection getConnection() throws DataAccessException {
+        if (closed) {
+            throw new DataAccessException("failed to get connection: pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(settings.waitTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new DataAccessException("failed to get connection: timed out after "
+                        + settings.waitTimeoutMillis() + "ms waiting for the pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("failed to get connection: interrupted", e);
+        }
+
+        try {
+            Connection connection = takeIdle();
+            if (connection == null) {
+                connection = factory.create();
+                created.incrementAndGet();
+            }
+            long waited = System.nanoTime() - start;
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+            borrows.incrementAndGet();
+            return wrap(connection);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw new DataAccessException("failed to get connection", e);
+        }
+    }
+
+    public Stats stats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        long count = borrows.get();
+        double seconds = Math.max(1e-9, (System.nanoTime() - startedAt) / 1e9);
+        return new Stats(settings.size(), borrowed.size(), idleCount, created.get(), destroyed.get(), count,
+                timeouts.get(), leaks.get(), count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count,
+                maxWaitNanos.get() / 1e6, created.get() / seconds);
+    }
+
+    /**
+     * Closes every idle connection; borrowed connections are closed as they come back
+     */
+    @Override
+    public void close() {
+        closed = true;
+        sweeper.shutdownNow();
+        List<Idle> drained;
+        synchronized (idle) {
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        drained.forEach(entry -> destroy(entry.connection()));
+    }
+
+    /**
+     * Most recently returned first, so the least used connections are the ones left to
+     * age out. Connections that have been idle a while are validated before reuse.
+     */
+    private Connection takeIdle() {
+        while (true) {
+            Idle entry;
+            synchronized (idle) {
+                entry = idle.pollFirst();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (isUsable(entry)) {
+                return entry.connection();
+            }
+            destroy(entry.connection());
+        }
+    }
+
+    private boolean isUsable(Idle entry) {
+        try {
+            if (entry.connection().isClosed()) {
+                return false;
+            }
+            if (System.nanoTime() - entry.returnedAt() < TimeUnit.MILLISECONDS.toNanos(settings.validateAfterMillis())) {
+                return true;
+            }
+            return entry.connection().isValid(settings.validationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Borrowed handle) {
+        borrowed.remove(handle);
+        Connection connection = handle.connection;
+        try {
+            if (closed || connection.isClosed()) {
+                destroy(connection);
+                return;
+            }
+            // leave the connection the way a fresh one would be for the next borrower
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            synchronized (idle) {
+                idle.addFirst(new Idle(connection, System.nanoTime()));
+            }
+        } catch (SQLException e) {
+            destroy(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(Connection connection) {
+        destroyed.incrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    void sweep() {
+        long now = System.nanoTime();
+        List<Connection> expired = new ArrayList<>();
+        synchronized (idle) {
+            long cutoff = now - TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis());
+            while (!idle.isEmpty() && idle.peekLast().returnedAt() < cutoff) {
+                expired.add(idle.pollLast().connection());
+            }
+        }
+        expired.forEach(this::destroy);
+
+        if (settings.leakThresholdMillis() > 0) {
+            long leakCutoff = now - TimeUnit.MILLISECONDS.toNanos(settings.leakThresholdMillis());
+            for (Borrowed handle : borrowed) {
+                if (handle.borrowedAt < leakCutoff && !handle.reported) {
+                    handle.reported = true;
+                    leaks.incrementAndGet();
+                    LOG.warn("Possible connection leak: held for more than {}ms",
+                            settings.leakThresholdMillis(), handle.borrowStack);
+                }
+            }
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        Borrowed handle = new Borrowed(connection, settings.leakThresholdMillis() > 0
+                ? new Exception("connection borrowed here") : null);
+        borrowed.add(handle);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, handle);
+    }
+
+    private final class Borrowed implements InvocationHandler {
+        private final Connection connection;
+        private final Exception borrowStack;
+        private final long borrowedAt = System.nanoTime();
+        private volatile boolean reported;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private Borrowed(Connection connection, Exception borrowStack) {
+            this.connection = connection;
+            this.borrowStack = borrowStack;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    // not synchronized: release may block on the database, which would pin a virtual thread
+                    if (returned.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned.get() || connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + connection;
+                }
+                default -> {
+                }
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package dataaccess;
 
+import chess.ChessGame;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 
 import javax.xml.crypto.Data;
 import java.util.Collection;
+import java.util.List;
 
 
-public interface DataAccess {
+public interface DataAccess extends AutoCloseable {
     void clear() throws DataAccessException;
     void createUser(UserData username) throws DataAccessException;
     UserData getUser(String username) throws DataAccessException;
@@ -17,6 +21,41 @@ public interface DataAccess {
     void authRemove(String authToken) throws DataAccessException;
     int newGame(GameData game) throws DataAccessException;
     GameData getGame(int game) throws DataAccessException;
-    Collection<GameData> games() throws DataAccessException;
+    Collection<GameSummary> games() throws DataAccessException;
+
+    /**
+     * Lists games for the lobby, without loading their boards
+     */
+    List<GameSummary> games(GameQuery query) throws DataAccessException;
     void gameUpdate(GameData game) throws DataAccessException;
+
+    /**
+     * Saves the game's board, turn and game over flag but leaves its players and name
+     * alone, so it can't undo a join that happened since the game was read
+     */
+    void gameStateUpdate(int gameID, ChessGame game) throws DataAccessException;
+
+    /**
+     * Records a move that has already been played on game.game(). Unlike gameUpdate this
+     * only needs to append the move; the stored game must read back the same either way.
+     *
+     * @param move the packed move (see chess.PackedMove) that was just played
+     */
+    void gameMove(GameData game, int move) throws DataAccessException;
+
+    /**
+     * Sets the game's players only if they are still the expected ones, so two requests
+     * that read the same seats can't both take one
+     *
+     * @return false if the game is missing or its players have changed
+     */
+    boolean compareAndSetPlayers(int gameID, String expectedWhite, String expectedBlack,
+                                 String white, String black) throws DataAccessException;
+
+    /**
+     * Releases anything the store holds open, like background threads; it can't be used after
+     */
+    @Override
+    default void close() {
+    }
 }
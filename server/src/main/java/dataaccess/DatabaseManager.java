@@ -8,6 +8,7 @@ public class DatabaseManager {
     private static String dbUsername;
     private static String dbPassword;
     private static String connectionUrl;
+    private static volatile ConnectionPool pool;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,10 +31,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrow a connection to the database from the pool, with the catalog set based upon
+     * the properties specified in db.properties. Connections to the database should
+     * be short-lived, and you must close the connection when you are done with it, which
+     * returns it to the pool. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
      * try (var conn = DatabaseManager.getConnection()) {
@@ -42,13 +43,20 @@ public class DatabaseManager {
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
-            conn.setCatalog(databaseName);
-            return conn;
-        } catch (SQLException ex) {
-            throw new DataAccessException("failed to get connection", ex);
-        }
+        return pool.getConnection();
+    }
+
+    /**
+     * @return wait times, active and idle counts and creation rate of the connection pool
+     */
+    public static ConnectionPool.Stats poolStats() {
+        return pool.stats();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(connectionUrl, dbUsername, dbPassword);
+        conn.setCatalog(databaseName);
+        return conn;
     }
 
     private static void loadPropertiesFromResources() {
@@ -64,6 +72,13 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Besides the db.* connection settings, the pool reads optional db.pool.size,
+     * db.pool.waitTimeoutMillis, db.pool.validateAfterMillis, db.pool.validationTimeoutSeconds,
+     * db.pool.idleTimeoutMillis and db.pool.leakThresholdMillis (0 turns leak detection off).
+     * This runs once, when the class loads, so changing the credentials or pool settings
+     * takes a server restart.
+     */
     private static void loadProperties(Properties props) {
         databaseName = props.getProperty("db.name");
         dbUsername = props.getProperty("db.user");
@@ -71,6 +86,9 @@ public class DatabaseManager {
 
         var host = props.getProperty("db.host");
         var port = Integer.parseInt(props.getProperty("db.port"));
-        connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+        // lets the driver send a JDBC batch as one multi-row statement
+        connectionUrl = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
+
+        pool = new ConnectionPool(DatabaseManager::openConnection, ConnectionPool.Settings.from(props));
     }
 }
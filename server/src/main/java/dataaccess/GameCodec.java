@@ -0,0 +1,114 @@
+package dataaccess;
+
+import chess.ChessBoard;
+import chess.ChessGame;
+import chess.ChessPiece;
+import com.google.gson.Gson;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Packs a ChessGame into a few dozen bytes for the games table:
+ * <pre>
+ * byte  0     format version
+ * byte  1     flags: bit 0 black to move, bit 1 game over
+ * bytes 2-9   occupied squares bitboard, a1 is bit 0
+ * then        one 4-bit piece index per occupied square, lowest square first, two per byte
+ * </pre>
+ * A full starting board is 26 bytes. Rows written before this format held Gson JSON,
+ * which always starts with '{', so decode still reads those.
+ */
+public final class GameCodec {
+    private static final byte VERSION = 1;
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+
+    private static final Gson GSON = new Gson();
+
+    private GameCodec() {
+    }
+
+    public static byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupied();
+        int pieces = Long.bitCount(occupied);
+        ByteBuffer buffer = ByteBuffer.allocate(10 + (pieces + 1) / 2);
+
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK) {
+            flags |= BLACK_TO_MOVE;
+        }
+        if (game.isGameOver()) {
+            flags |= GAME_OVER;
+        }
+        buffer.put(VERSION).put((byte) flags).putLong(occupied);
+
+        int pending = -1;
+        while (occupied != 0) {
+            int index = board.getPiece(Long.numberOfTrailingZeros(occupied)).index();
+            if (pending < 0) {
+                pending = index;
+            } else {
+                buffer.put((byte) (pending | index << 4));
+                pending = -1;
+            }
+            occupied &= occupied - 1;
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+        return buffer.array();
+    }
+
+    public static ChessGame decode(byte[] bytes) throws DataAccessException {
+        if (isLegacy(bytes)) {
+            try {
+                return GSON.fromJson(new String(bytes, StandardCharsets.UTF_8), ChessGame.class);
+            } catch (RuntimeException e) {
+                throw new DataAccessException("Unable to read game: " + e.getMessage(), e);
+            }
+        }
+        if (bytes.length < 10 || bytes[0] != VERSION) {
+            throw new DataAccessException("Unable to read game: unknown format");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        int flags = buffer.get();
+        long occupied = buffer.getLong();
+        if (bytes.length != 10 + (Long.bitCount(occupied) + 1) / 2) {
+            throw new DataAccessException("Unable to read game: expected " + (Long.bitCount(occupied) + 1) / 2
+                    + " bytes of pieces, got " + (bytes.length - 10));
+        }
+
+        ChessBoard board = new ChessBoard();
+        int i = 0;
+        int packed = 0;
+        while (occupied != 0) {
+            if (i % 2 == 0) {
+                packed = buffer.get();
+            }
+            int index = (packed >> (4 * (i % 2))) & 0xF;
+            if (index >= 12) {
+                throw new DataAccessException("Unable to read game: bad piece " + index);
+            }
+            board.addPiece(Long.numberOfTrailingZeros(occupied), ChessPiece.fromIndex(index));
+            occupied &= occupied - 1;
+            i++;
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setGameOver((flags & GAME_OVER) != 0);
+        return game;
+    }
+
+    /**
+     * @return true if the bytes are a row from before the binary format
+     */
+    public static boolean isLegacy(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == '{';
+    }
+}
@@ -0,0 +1,248 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects game writes from every game and commits them together. A single thread takes
+ * the first pending write, waits up to {@code windowMillis} for more (or until it has
+ * {@code maxBatch}), and runs them all as JDBC batches in one transaction. Callers block
+ * in {@link #write} until that transaction has committed, so an acknowledged write is
+ * as durable as it was with one autocommit UPDATE per move.
+ * <p>
+ * Each write is one or more statements that succeed or fail together. If a batch fails,
+ * it is rolled back and its writes are retried one at a time, so a single bad write
+ * (say, a move racing another for the same ply) only fails its own caller.
+ * <p>
+ * {@link #close} commits whatever is already queued and then stops the thread.
+ */
+public class GroupCommitWriter implements AutoCloseable {
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection get() throws DataAccessException;
+    }
+
+    @FunctionalInterface
+    public interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    /**
+     * One statement of a write. Within a flush, steps run ordered by stage and then by
+     * arrival; consecutive steps with the same sql share a JDBC batch. Appends to tables
+     * nothing else updates can go in an earlier stage than row updates, so they batch
+     * together instead of alternating with them.
+     */
+    public record Step(int stage, String sql, Binder binder) {
+    }
+
+    public record Stats(long flushes, long writes, long failures, double averageBatch) {
+    }
+
+    private record Write(List<Step> steps, CompletableFuture<Void> done) {
+    }
+
+    // queued by close, after every write that made it in
+    private static final Write STOP = new Write(List.of(), null);
+
+    private final ConnectionSource connections;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    // package-private so tests can interrupt it
+    final Thread flusher;
+    private boolean closed;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public GroupCommitWriter(ConnectionSource connections, long windowMillis, int maxBatch) {
+        this.connections = connections;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+
+        flusher = new Thread(this::run, "game-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues the steps as one write and waits for the transaction holding it to commit
+     */
+    public void write(Step... steps) throws DataAccessException {
+        var done = new CompletableFuture<Void>();
+        synchronized (this) {
+            if (closed) {
+                throw new DataAccessException("Unable to save game: the writer is closed");
+            }
+            queue.add(new Write(List.of(steps), done));
+        }
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            throw new DataAccessException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for the write to commit", e);
+        }
+    }
+
+    public Stats stats() {
+        long count = flushes.get();
+        return new Stats(count, writes.get(), failures.get(), count == 0 ? 0 : (double) writes.get() / count);
+    }
+
+    /**
+     * Waits for the writes already queued to commit and stops the writer thread; later
+     * writes fail
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(STOP);
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>();
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                try {
+                    Write first = queue.take();
+                    if (first == STOP) {
+                        return;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + windowNanos;
+                    while (batch.size() < maxBatch) {
+                        long remaining = deadline - System.nanoTime();
+                        Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == STOP) {
+                            stopping = true;
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    batch.forEach(write -> write.done().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // stopped without close; fail what's left below rather than leave callers waiting
+        } finally {
+            stopped(batch);
+        }
+    }
+
+    /**
+     * Closes the writer and fails every write it didn't get to, so no caller waits forever
+     */
+    private void stopped(List<Write> unfinished) {
+        List<Write> left = new ArrayList<>(unfinished);
+        synchronized (this) {
+            closed = true;
+            queue.drainTo(left);
+        }
+        var failure = new DataAccessException("Unable to save game: the writer has stopped");
+        for (Write write : left) {
+            if (write != STOP) {
+                write.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        flushes.incrementAndGet();
+        writes.addAndGet(batch.size());
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(false);
+            try {
+                execute(conn, batch);
+                conn.commit();
+                batch.forEach(write -> write.done().complete(null));
+                return;
+            } catch (SQLException e) {
+                conn.rollback();
+                if (batch.size() == 1) {
+                    fail(batch.get(0), e);
+                    return;
+                }
+            }
+
+            for (Write write : batch) {
+                try {
+                    execute(conn, List.of(write));
+                    conn.commit();
+                    write.done().complete(null);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    fail(write, e);
+                }
+            }
+        } catch (DataAccessException | SQLException e) {
+            for (Write write : batch) {
+                if (!write.done().isDone()) {
+                    fail(write, e);
+                }
+            }
+        }
+    }
+
+    private void fail(Write write, Exception e) {
+        failures.incrementAndGet();
+        write.done().completeExceptionally(e instanceof DataAccessException
+                ? e : new DataAccessException("Unable to save game: " + e.getMessage(), e));
+    }
+
+    private void execute(Connection conn, List<Write> batch) throws SQLException {
+        List<Step> steps = new ArrayList<>();
+        batch.forEach(write -> steps.addAll(write.steps()));
+        steps.sort(Comparator.comparingInt(Step::stage));
+
+        PreparedStatement statement = null;
+        String sql = null;
+        try {
+            for (Step step : steps) {
+                if (!step.sql().equals(sql)) {
+                    if (statement != null) {
+                        statement.executeBatch();
+                        statement.close();
+                    }
+                    sql = step.sql();
+                    statement = conn.prepareStatement(sql);
+                }
+                step.binder().bind(statement);
+                statement.addBatch();
+            }
+            if (statement != null) {
+                statement.executeBatch();
+            }
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+}
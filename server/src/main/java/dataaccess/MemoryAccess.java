@@ -1,56 +1,128 @@
 package dataaccess;
 
+import chess.ChessGame;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps everything in concurrent maps, so it is safe to share between request threads.
+ * Updates to one game are atomic per game, and games are copied in and out so two
+ * requests never play on the same ChessGame.
+ */
 public class MemoryAccess implements DataAccess{
-    private Map<String, UserData> users = new HashMap<>();
-    private Map<String, AuthData> auths = new HashMap<>();
-    private Map<Integer, GameData> games = new HashMap<>();
-    private int newGame = 1;
+    private final Map<String, UserData> users = new ConcurrentHashMap<>();
+    private final Map<String, AuthData> auths = new ConcurrentHashMap<>();
+    // ordered by id, so the game list can start from a cursor without sorting
+    private final ConcurrentNavigableMap<Integer, GameData> games = new ConcurrentSkipListMap<>();
+    private final AtomicInteger newGame = new AtomicInteger(1);
 
     public void clear(){
         users.clear();
         auths.clear();
         games.clear();
-        newGame =1;
+        newGame.set(1);
     }
 
-    public void createUser(UserData user){
-        users.put(user.username(),user);
+    public void createUser(UserData user) throws DataAccessException {
+        String passwordHash = PasswordHasher.shared().hash(user.password());
+        if (users.putIfAbsent(user.username(), new UserData(user.username(), passwordHash, user.email())) != null) {
+            throw new DataAccessException("username already exists");
+        }
     }
     public UserData getUser(String username){
-        return users.get(username);
+        return username == null ? null : users.get(username);
     }
 
     public void auth(AuthData auth){
         auths.put(auth.authToken(), auth);
     }
     public AuthData getAuth(String authToken) {
-        return auths.get(authToken);
+        return authToken == null ? null : auths.get(authToken);
     }
     public void authRemove(String authToken){
-        auths.remove(authToken);
+        if (authToken != null) {
+            auths.remove(authToken);
+        }
     }
 
     public int newGame(GameData game){
-        int currGame = newGame++;
-        GameData nextGame = new GameData(currGame, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game());
-        games.put(currGame, nextGame);
+        int currGame = newGame.getAndIncrement();
+        games.put(currGame, copy(new GameData(currGame, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game())));
         return currGame;
     }
     public GameData getGame(int game){
-        return games.get(game);
+        GameData stored = games.get(game);
+        return stored == null ? null : copy(stored);
     }
-    public Collection<GameData> games(){
-        return games.values();
+
+    /**
+     * @return the games as they were when called, ordered by id
+     */
+    public Collection<GameSummary> games(){
+        return games.values().stream()
+                .map(GameSummary::of)
+                .toList();
+    }
+    public List<GameSummary> games(GameQuery query){
+        return games.tailMap(query.afterGameID(), false).values().stream()
+                .map(GameSummary::of)
+                .filter(query::matches)
+                .limit(query.limit())
+                .toList();
     }
     public void gameUpdate(GameData game){
-        games.put(game.gameID(), game);
+        games.put(game.gameID(), copy(game));
+    }
+
+    public void gameStateUpdate(int gameID, ChessGame game) {
+        ChessGame copy = new ChessGame(game);
+        games.computeIfPresent(gameID, (id, stored) ->
+                new GameData(id, stored.whiteUsername(), stored.blackUsername(), stored.gameName(), copy));
+    }
+
+    /**
+     * Only accepts the move if it follows the stored game, so two moves racing for the
+     * same ply can't both be recorded. The skip list may call the function more than once,
+     * so the flag is set by whichever call wins.
+     */
+    public void gameMove(GameData game, int move) throws DataAccessException {
+        GameData copy = copy(game);
+        int ply = game.game().getPly();
+        boolean[] recorded = new boolean[1];
+        games.computeIfPresent(game.gameID(), (id, stored) -> {
+            recorded[0] = stored.game().getPly() == ply - 1;
+            return recorded[0] ? copy : stored;
+        });
+        if (!recorded[0]) {
+            throw new DataAccessException("Unable to record move: the game has changed");
+        }
+    }
+
+    public boolean compareAndSetPlayers(int gameID, String expectedWhite, String expectedBlack,
+                                        String white, String black) {
+        boolean[] swapped = new boolean[1];
+        games.computeIfPresent(gameID, (id, stored) -> {
+            swapped[0] = Objects.equals(stored.whiteUsername(), expectedWhite)
+                    && Objects.equals(stored.blackUsername(), expectedBlack);
+            return swapped[0] ? new GameData(id, white, black, stored.gameName(), stored.game()) : stored;
+        });
+        return swapped[0];
+    }
+
+    private static GameData copy(GameData game) {
+        ChessGame chessGame = game.game() == null ? null : new ChessGame(game.game());
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
     }
 }
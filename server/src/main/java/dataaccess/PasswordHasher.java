@@ -0,0 +1,139 @@
+package dataaccess;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs BCrypt on a few dedicated threads instead of on request threads. Hashing is meant
+ * to be slow, so a burst of registrations or logins would otherwise take every core and
+ * stall move traffic. By default it gets half the cores, and at most {@code queueLimit}
+ * passwords wait their turn; past that, hash and check fail at once with a "busy"
+ * DataAccessException, which the routes turn into a 503.
+ */
+public class PasswordHasher implements AutoCloseable {
+    public record Settings(int threads, int queueLimit, int cost) {
+        public static Settings defaults() {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            return new Settings(threads, 64 * threads, 10);
+        }
+
+        /**
+         * Reads the password.* keys, falling back to the defaults for any that are missing
+         */
+        public static Settings from(Properties props) {
+            Settings d = defaults();
+            return new Settings(
+                    Integer.parseInt(props.getProperty("password.threads", String.valueOf(d.threads))),
+                    Integer.parseInt(props.getProperty("password.queueLimit", String.valueOf(d.queueLimit))),
+                    Integer.parseInt(props.getProperty("password.cost", String.valueOf(d.cost))));
+        }
+    }
+
+    /**
+     * @param averageMillis     mean time BCrypt took per password
+     * @param averageWaitMillis mean time a password waited in the queue before BCrypt started
+     */
+    public record Stats(long hashed, long checked, long rejected, int queued, int running,
+                        double averageMillis, double averageWaitMillis) {
+    }
+
+    private static volatile PasswordHasher shared = new PasswordHasher(Settings.defaults());
+
+    private final Settings settings;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public PasswordHasher(Settings settings) {
+        this.settings = settings;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(settings.queueLimit()), task -> {
+                    Thread thread = new Thread(task, "password-hasher-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @return the hasher the stores and login share
+     */
+    public static PasswordHasher shared() {
+        return shared;
+    }
+
+    /**
+     * Replaces the shared hasher. A request may still be holding the old one, so it keeps
+     * taking passwords; its threads exit once it has been idle for a second.
+     */
+    public static void configure(Settings settings) {
+        var old = shared;
+        shared = new PasswordHasher(settings);
+        old.executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+        old.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public String hash(String password) throws DataAccessException {
+        String hash = run(() -> BCrypt.hashpw(password, BCrypt.gensalt(settings.cost())));
+        hashed.incrementAndGet();
+        return hash;
+    }
+
+    /**
+     * @return whether the password matches the hash; the cost is whatever the hash was made with
+     */
+    public boolean check(String password, String hash) throws DataAccessException {
+        boolean matches = run(() -> BCrypt.checkpw(password, hash));
+        checked.incrementAndGet();
+        return matches;
+    }
+
+    public Stats stats() {
+        long count = hashed.get() + checked.get();
+        return new Stats(hashed.get(), checked.get(), rejected.get(), executor.getQueue().size(),
+                executor.getActiveCount(), count == 0 ? 0 : totalNanos.get() / 1e6 / count,
+                count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    <T> T run(Callable<T> work) throws DataAccessException {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long start = System.nanoTime();
+                totalWaitNanos.addAndGet(start - queuedAt);
+                try {
+                    return work.call();
+                } finally {
+                    totalNanos.addAndGet(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new DataAccessException("server busy: too many passwords waiting to be checked");
+        }
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new DataAccessException("Unable to check password: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for the password check", e);
+        }
+    }
+}
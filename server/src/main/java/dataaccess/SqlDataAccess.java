@@ -1,19 +1,39 @@
 package dataaccess;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class SqlDataAccess implements DataAccess{
+    // a move only appends to game_moves; the games row is rewritten every this many plies
+    private static final int SNAPSHOT_INTERVAL = 16;
+    // game writes from all games are committed together, at most this often and this many at a time
+    private static final long WRITE_WINDOW_MILLIS = 2;
+    private static final int WRITE_BATCH = 256;
+
+    private static final String UPDATE_GAME =
+            "UPDATE games SET whiteUsername = ?, blackUsername = ?, gameName = ?, game = ?, ply = ? WHERE gameID = ?";
+    private static final String INSERT_MOVE = "INSERT INTO game_moves (gameID, ply, move) VALUES (?, ?, ?)";
+    private static final String UPDATE_SNAPSHOT = "UPDATE games SET game = ?, ply = ? WHERE gameID = ?";
+
+    private final GroupCommitWriter writer =
+            new GroupCommitWriter(DatabaseManager::getConnection, WRITE_WINDOW_MILLIS, WRITE_BATCH);
+
     public SqlDataAccess() throws DataAccessException{
-        configureDatabase();
+        try {
+            configureDatabase();
+        } catch (DataAccessException e) {
+            writer.close();
+            throw e;
+        }
     }
 
     private void configureDatabase() throws DataAccessException{
@@ -39,7 +59,21 @@ public class SqlDataAccess implements DataAccess{
                     whiteUsername VARCHAR(255),
                     blackUsername VARCHAR(255),
                     gameName VARCHAR(255) NOT NULL,
-                    game TEXT NOT NULL
+                    game BLOB NOT NULL,
+                    ply INT NOT NULL DEFAULT 0,
+                    openSeat BOOLEAN AS (whiteUsername IS NULL OR blackUsername IS NULL) STORED,
+                    INDEX idx_games_open (openSeat),
+                    INDEX idx_games_white (whiteUsername),
+                    INDEX idx_games_black (blackUsername),
+                    INDEX idx_games_name (gameName)
+                )
+                """,
+                """
+                CREATE TABLE IF NOT EXISTS game_moves (
+                    gameID INT NOT NULL,
+                    ply INT NOT NULL,
+                    move INT NOT NULL,
+                    PRIMARY KEY (gameID, ply)
                 )
                 """
             };
@@ -48,17 +82,100 @@ public class SqlDataAccess implements DataAccess{
                     currStatement.executeUpdate();
                 }
             }
+            migrateJsonGames(conn);
+            if (columnType(conn, "games", "ply") == null) {
+                try (var statement = conn.prepareStatement("ALTER TABLE games ADD COLUMN ply INT NOT NULL DEFAULT 0")) {
+                    statement.executeUpdate();
+                }
+            }
+            migrateLobbyIndexes(conn);
         } catch (SQLException e) {
             throw new DataAccessException("Unable to configure database: " + e.getMessage());
         }
     }
 
+    /**
+     * Games used to be stored as Gson JSON in a TEXT column. If the column is still TEXT,
+     * switch it to BLOB and re-encode every row with GameCodec. GameCodec.decode also
+     * reads JSON, so a row that is missed here still loads.
+     */
+    private void migrateJsonGames(Connection conn) throws SQLException, DataAccessException {
+        String type = columnType(conn, "games", "game");
+        if (type == null || !type.toLowerCase().endsWith("text")) {
+            return;
+        }
+
+        try (var statement = conn.prepareStatement("ALTER TABLE games MODIFY game BLOB NOT NULL")) {
+            statement.executeUpdate();
+        }
+        try (var select = conn.prepareStatement("SELECT gameID, game FROM games");
+             var update = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?")) {
+            var rs = select.executeQuery();
+            while (rs.next()) {
+                byte[] game = rs.getBytes("game");
+                if (GameCodec.isLegacy(game)) {
+                    update.setBytes(1, GameCodec.encode(GameCodec.decode(game)));
+                    update.setInt(2, rs.getInt("gameID"));
+                    update.addBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * Tables made before the lobby was paginated lack the openSeat column and the indexes
+     * the game list filters on
+     */
+    private void migrateLobbyIndexes(Connection conn) throws SQLException {
+        var ddl = new ArrayList<String>();
+        if (columnType(conn, "games", "openSeat") == null) {
+            ddl.add("ALTER TABLE games ADD COLUMN openSeat BOOLEAN AS (whiteUsername IS NULL OR blackUsername IS NULL) STORED");
+        }
+        var indexes = new String[][] {
+                {"idx_games_open", "openSeat"},
+                {"idx_games_white", "whiteUsername"},
+                {"idx_games_black", "blackUsername"},
+                {"idx_games_name", "gameName"}
+        };
+        for (var index : indexes) {
+            try (var statement = conn.prepareStatement(
+                    "SELECT 1 FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'games' AND INDEX_NAME = ?")) {
+                statement.setString(1, index[0]);
+                if (!statement.executeQuery().next()) {
+                    ddl.add("CREATE INDEX " + index[0] + " ON games (" + index[1] + ")");
+                }
+            }
+        }
+        for (var statement : ddl) {
+            try (var currStatement = conn.prepareStatement(statement)) {
+                currStatement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @return the column's data type, or null if the table doesn't have it
+     */
+    private String columnType(Connection conn, String table, String column) throws SQLException {
+        try (var statement = conn.prepareStatement(
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+            var rs = statement.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
     @Override
     public void clear() throws DataAccessException{
         try (var conn = DatabaseManager.getConnection()){
             try(var statement = conn.prepareStatement("DELETE FROM auth")){
                 statement.executeUpdate();
             }
+            try (var statement = conn.prepareStatement("DELETE FROM game_moves")){
+                statement.executeUpdate();
+            }
             try (var statement = conn.prepareStatement("DELETE FROM games")){
                 statement.executeUpdate();
             }
@@ -72,7 +189,7 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public void createUser(UserData user) throws DataAccessException {
-        String passwordHash = BCrypt.hashpw(user.password(), BCrypt.gensalt());
+        String passwordHash = PasswordHasher.shared().hash(user.password());
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement("INSERT INTO users (username, password, email) VALUES (?, ?, ?)")) {  // Fixed this line
                 statement.setString(1, user.username());
@@ -144,16 +261,16 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public int newGame(GameData game) throws DataAccessException {
-        Gson gson = new Gson();
-        String gameJson = gson.toJson(game.game());
+        byte[] gameBytes = GameCodec.encode(game.game());
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement(
-                    "INSERT INTO games (whiteUsername, blackUsername, gameName, game) VALUES (?, ?, ?, ?)",
+                    "INSERT INTO games (whiteUsername, blackUsername, gameName, game, ply) VALUES (?, ?, ?, ?, ?)",
                     Statement.RETURN_GENERATED_KEYS)) {
                 statement.setString(1, game.whiteUsername());
                 statement.setString(2, game.blackUsername());
                 statement.setString(3, game.gameName());
-                statement.setString(4, gameJson);
+                statement.setBytes(4, gameBytes);
+                statement.setInt(5, game.game().getPly());
                 statement.executeUpdate();
                 var rs = statement.getGeneratedKeys();
                 if (rs.next()) {
@@ -168,13 +285,20 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public GameData getGame(int gameID) throws DataAccessException {
-        Gson gson = new Gson();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games WHERE gameID = ?")) {
+            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, game, ply FROM games WHERE gameID = ?")) {
                 statement.setInt(1, gameID);
                 var rs = statement.executeQuery();
                 if (rs.next()) {
-                    ChessGame chessGame = gson.fromJson(rs.getString("game"), ChessGame.class);
+                    ChessGame chessGame = snapshot(rs);
+                    try (var moves = conn.prepareStatement("SELECT move FROM game_moves WHERE gameID = ? AND ply > ? ORDER BY ply")) {
+                        moves.setInt(1, gameID);
+                        moves.setInt(2, chessGame.getPly());
+                        var moveRs = moves.executeQuery();
+                        while (moveRs.next()) {
+                            chessGame.doMove(moveRs.getInt("move"));
+                        }
+                    }
                     return new GameData(
                             rs.getInt("gameID"),
                             rs.getString("whiteUsername"),
@@ -191,21 +315,55 @@ public class SqlDataAccess implements DataAccess{
     }
 
     @Override
-    public Collection<GameData> games() throws DataAccessException {
-        Gson gson = new Gson();
-        Collection<GameData> games = new ArrayList<>();
+    public Collection<GameSummary> games() throws DataAccessException {
+        Collection<GameSummary> games = new ArrayList<>();
         try (var conn = DatabaseManager.getConnection()) {
-            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName, game FROM games")) {
+            try (var statement = conn.prepareStatement("SELECT gameID, whiteUsername, blackUsername, gameName FROM games ORDER BY gameID")) {
                 var rs = statement.executeQuery();
                 while (rs.next()) {
-                    ChessGame chessGame = gson.fromJson(rs.getString("game"), ChessGame.class);
-                    games.add(new GameData(
-                            rs.getInt("gameID"),
-                            rs.getString("whiteUsername"),
-                            rs.getString("blackUsername"),
-                            rs.getString("gameName"),
-                            chessGame
-                    ));
+                    games.add(summary(rs));
+                }
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Unable to list games: " + e.getMessage());
+        }
+        return games;
+    }
+
+    /**
+     * Never reads the game column, and walks the primary key from the cursor; each filter
+     * has an index MySQL can use instead
+     */
+    @Override
+    public List<GameSummary> games(GameQuery query) throws DataAccessException {
+        var sql = new StringBuilder("SELECT gameID, whiteUsername, blackUsername, gameName FROM games WHERE gameID > ?");
+        var params = new ArrayList<String>();
+        if (query.openSeatsOnly()) {
+            sql.append(" AND openSeat");
+        }
+        if (query.player() != null) {
+            sql.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+            params.add(query.player());
+            params.add(query.player());
+        }
+        if (query.namePrefix() != null) {
+            sql.append(" AND gameName LIKE ?");
+            params.add(query.namePrefix().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        sql.append(" ORDER BY gameID LIMIT ?");
+
+        var games = new ArrayList<GameSummary>();
+        try (var conn = DatabaseManager.getConnection()) {
+            try (var statement = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                statement.setInt(i++, query.afterGameID());
+                for (String param : params) {
+                    statement.setString(i++, param);
+                }
+                statement.setInt(i, query.limit());
+                var rs = statement.executeQuery();
+                while (rs.next()) {
+                    games.add(summary(rs));
                 }
             }
         } catch (SQLException e) {
@@ -216,21 +374,99 @@ public class SqlDataAccess implements DataAccess{
 
     @Override
     public void gameUpdate(GameData game) throws DataAccessException {
-        Gson gson = new Gson();
-        String gameJson = gson.toJson(game.game());
+        byte[] gameBytes = GameCodec.encode(game.game());
+        int ply = game.game().getPly();
+        writer.write(new GroupCommitWriter.Step(1, UPDATE_GAME, statement -> {
+            statement.setString(1, game.whiteUsername());
+            statement.setString(2, game.blackUsername());
+            statement.setString(3, game.gameName());
+            statement.setBytes(4, gameBytes);
+            statement.setInt(5, ply);
+            statement.setInt(6, game.gameID());
+        }));
+    }
+
+    @Override
+    public void gameStateUpdate(int gameID, ChessGame game) throws DataAccessException {
+        byte[] gameBytes = GameCodec.encode(game);
+        int ply = game.getPly();
+        writer.write(new GroupCommitWriter.Step(1, UPDATE_SNAPSHOT, statement -> {
+            statement.setBytes(1, gameBytes);
+            statement.setInt(2, ply);
+            statement.setInt(3, gameID);
+        }));
+    }
+
+    /**
+     * Appends the move to game_moves. The games row is only rewritten every
+     * SNAPSHOT_INTERVAL plies and when the game ends; getGame replays the moves made
+     * since the last snapshot. (gameID, ply) is the key, so if two moves race for the
+     * same ply the second one fails instead of forking the game.
+     */
+    @Override
+    public void gameMove(GameData game, int move) throws DataAccessException {
+        ChessGame chessGame = game.game();
+        int ply = chessGame.getPly();
+        var append = new GroupCommitWriter.Step(0, INSERT_MOVE, statement -> {
+            statement.setInt(1, game.gameID());
+            statement.setInt(2, ply);
+            statement.setInt(3, move);
+        });
+        if (!chessGame.isGameOver() && ply % SNAPSHOT_INTERVAL != 0) {
+            writer.write(append);
+            return;
+        }
+
+        byte[] gameBytes = GameCodec.encode(chessGame);
+        writer.write(append, new GroupCommitWriter.Step(1, UPDATE_SNAPSHOT, statement -> {
+            statement.setBytes(1, gameBytes);
+            statement.setInt(2, ply);
+            statement.setInt(3, game.gameID());
+        }));
+    }
+
+    @Override
+    public boolean compareAndSetPlayers(int gameID, String expectedWhite, String expectedBlack,
+                                        String white, String black) throws DataAccessException {
         try (var conn = DatabaseManager.getConnection()) {
             try (var statement = conn.prepareStatement(
-                    "UPDATE games SET whiteUsername = ?, blackUsername = ?, gameName = ?, game = ? WHERE gameID = ?")) {
-                statement.setString(1, game.whiteUsername());
-                statement.setString(2, game.blackUsername());
-                statement.setString(3, game.gameName());
-                statement.setString(4, gameJson);
-                statement.setInt(5, game.gameID());
-                statement.executeUpdate();
+                    "UPDATE games SET whiteUsername = ?, blackUsername = ? WHERE gameID = ? AND whiteUsername <=> ? AND blackUsername <=> ?")) {
+                statement.setString(1, white);
+                statement.setString(2, black);
+                statement.setInt(3, gameID);
+                statement.setString(4, expectedWhite);
+                statement.setString(5, expectedBlack);
+                return statement.executeUpdate() == 1;
             }
         } catch (SQLException e) {
-            throw new DataAccessException("Unable to update game: " + e.getMessage());
+            throw new DataAccessException("Unable to update players: " + e.getMessage());
         }
     }
 
+    public GroupCommitWriter.Stats writeStats() {
+        return writer.stats();
+    }
+
+    @Override
+    public void close() {
+        writer.close();
+    }
+
+    private GameSummary summary(ResultSet rs) throws SQLException {
+        return new GameSummary(
+                rs.getInt("gameID"),
+                rs.getString("whiteUsername"),
+                rs.getString("blackUsername"),
+                rs.getString("gameName"));
+    }
+
+    /**
+     * Decodes the game column and sets its ply from the ply column
+     */
+    private ChessGame snapshot(ResultSet rs) throws SQLException, DataAccessException {
+        ChessGame chessGame = GameCodec.decode(rs.getBytes("game"));
+        chessGame.setPly(rs.getInt("ply"));
+        return chessGame;
+    }
+
 }
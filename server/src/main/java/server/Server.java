@@ -1,39 +1,70 @@
 package server;
 
+import dataaccess.CachingDataAccess;
 import dataaccess.DataAccessException;
 import dataaccess.SqlDataAccess;
 import io.javalin.*;
+import io.javalin.http.Context;
 
 import dataaccess.DataAccess;
 import model.UserData;
 import service.Clear;
 import service.NewUser;
 import model.AuthData;
+import server.websocket.ConnectionManager;
 import server.websocket.WebSocketHandler;
 
 import java.util.Collection;
 import java.util.Map;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import service.GameService;
 
 import org.eclipse.jetty.websocket.api.Session;
 
 public class Server {
+    // games kept in memory; active games should all fit
+    private static final int GAME_CACHE_SIZE = 4096;
 
     private final Javalin javalin;
 
     private final DataAccess dataAccess;
+    private final ConnectionManager connections;
 
     public Server() {
-        try {
-            dataAccess = new SqlDataAccess();
-        } catch (DataAccessException e) {
-            throw new RuntimeException("Failed to initialize database: " + e.getMessage());
-        }
+        this(mysql());
+    }
+
+    /**
+     * @param dataAccess where to keep users, tokens and games, for example a MemoryAccess
+     *                   to run without a database
+     */
+    public Server(DataAccess dataAccess) {
+        this(dataAccess, true);
+    }
+
+    /**
+     * @param virtualThreads whether requests and WebSocket messages run on virtual threads,
+     *                       so a request blocked on the database doesn't hold one of Jetty's
+     *                       pooled threads; false runs them on the pool as before
+     */
+    public Server(DataAccess dataAccess, boolean virtualThreads) {
+        this(dataAccess, virtualThreads, new ConnectionManager());
+    }
+
+    /**
+     * @param connections tracks the WebSocket sessions, with the send queue limit and
+     *                    overflow policy to use
+     */
+    public Server(DataAccess dataAccess, boolean virtualThreads, ConnectionManager connections) {
+        this.dataAccess = dataAccess;
+        this.connections = connections;
 
-        WebSocketHandler webSocketHandler = new WebSocketHandler(dataAccess);
+        WebSocketHandler webSocketHandler = new WebSocketHandler(dataAccess, connections);
 
         javalin = Javalin.create(config -> {
+            config.useVirtualThreads = virtualThreads;
             config.staticFiles.add("web");
             config.jsonMapper(new io.javalin.json.JsonMapper() {
                 private final com.google.gson.Gson gson = new com.google.gson.Gson();
@@ -63,6 +94,8 @@ public class Server {
                     e.printStackTrace();
                 }
             });
+            config.onClose(closeCtx -> webSocketHandler.onClose(closeCtx.session));
+            config.onError(errorCtx -> webSocketHandler.onClose(errorCtx.session));
         });
 
         //clear
@@ -90,6 +123,9 @@ public class Server {
                 if (e.getMessage() != null && e.getMessage().contains("connection")) {
                     throw e;
                 }
+                if (busy(ctx, e)) {
+                    return;
+                }
                 ctx.status(403);
                 ctx.json(new ErrorResponse("Error: already in use"));
             }
@@ -112,6 +148,9 @@ public class Server {
                 if (e.getMessage() != null && e.getMessage().contains("connection")) {
                     throw e;
                 }
+                if (busy(ctx, e)) {
+                    return;
+                }
                 ctx.status(401);
                 ctx.json(new ErrorResponse("Error: unauthorized"));
             }
@@ -137,11 +176,19 @@ public class Server {
         //games
         javalin.get("/game", ctx -> {
             String authToken = ctx.header("authorization");
+            GameQuery query;
+            try {
+                query = gameQuery(ctx);
+            } catch (IllegalArgumentException e) {
+                ctx.status(400);
+                ctx.json(new ErrorResponse("Error: bad request"));
+                return;
+            }
             try {
                 GameService gameService = new GameService(dataAccess);
-                Collection<GameData> games = gameService.games(authToken);
+                GameService.GamePage page = gameService.games(authToken, query);
                 ctx.status(200);
-                ctx.json(new GameResponse(games));
+                ctx.json(new GameResponse(page.games(), page.nextCursor()));
             } catch (DataAccessException e) {
                 if (e.getMessage() != null && e.getMessage().contains("connection")) {
                     throw e;
@@ -151,6 +198,18 @@ public class Server {
             }
         });
 
+        //WebSocket send queues: totals, then each connection's queue depth and counts
+        javalin.get("/ws/stats", ctx -> {
+            String authToken = ctx.header("authorization");
+            if (authToken == null || dataAccess.getAuth(authToken) == null) {
+                ctx.status(401);
+                ctx.json(new ErrorResponse("Error: unauthorized"));
+                return;
+            }
+            ctx.status(200);
+            ctx.json(Map.of("totals", connections.stats(), "connections", connections.connectionStats()));
+        });
+
         //create game
         javalin.post("/game", ctx -> {
             String authToken = ctx.header("authorization");
@@ -216,19 +275,75 @@ public class Server {
         });
     }
 
+    /**
+     * Reads the game list's query parameters: limit, after (the previous page's
+     * nextCursor), open=true for games with a free seat, player and name (a prefix)
+     *
+     * @throws IllegalArgumentException if a parameter isn't valid
+     */
+    private static GameQuery gameQuery(Context ctx) {
+        String limit = ctx.queryParam("limit");
+        String after = ctx.queryParam("after");
+        int pageSize = limit == null ? GameQuery.DEFAULT_LIMIT : Integer.parseInt(limit);
+        if (pageSize < 1 || pageSize > GameQuery.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit out of range");
+        }
+        return new GameQuery(
+                after == null ? 0 : Integer.parseInt(after),
+                pageSize,
+                "true".equalsIgnoreCase(ctx.queryParam("open")),
+                ctx.queryParam("player"),
+                ctx.queryParam("name"));
+    }
+
+    /**
+     * Answers 503 if the password hasher turned the request away, so the client can retry
+     *
+     * @return whether it did
+     */
+    private static boolean busy(Context ctx, DataAccessException e) {
+        if (e.getMessage() == null || !e.getMessage().startsWith("server busy")) {
+            return false;
+        }
+        ctx.status(503);
+        ctx.header("Retry-After", "1");
+        ctx.json(new ErrorResponse("Error: server busy, try again"));
+        return true;
+    }
+
+    /**
+     * @return the MySQL store, with games and tokens cached in front of it
+     */
+    public static DataAccess mysql() {
+        try {
+            return new CachingDataAccess(new SqlDataAccess(), GAME_CACHE_SIZE);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("Failed to initialize database: " + e.getMessage());
+        }
+    }
+
     public int run(int desiredPort) {
         javalin.start(desiredPort);
         return javalin.port();
     }
 
+    /**
+     * @return the WebSocket connections, for their queue depths and sent, dropped and
+     * disconnected counts
+     */
+    public ConnectionManager connections() {
+        return connections;
+    }
+
     public void stop() {
         javalin.stop();
+        dataAccess.close();
     }
 
     record ErrorResponse(String message){
 
     }
-    record GameResponse(Collection<GameData> games){
+    record GameResponse(Collection<GameSummary> games, Integer nextCursor){
 
     }
     record CreateGameResponse(int gameID){
@@ -1,20 +1,225 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import java.io.IOException;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
+/**
+ * One session's connection to one game. Messages are queued and written one at a time
+ * without blocking the sender, so a slow client only backs up its own queue. When the
+ * queue is full, the {@link Overflow} policy decides what gives.
+ */
 public class Connection {
+    /**
+     * What a queued message is, so the overflow policy knows what it can drop
+     */
+    public enum Kind {
+        // a whole game; a newer one makes it stale
+        LOAD_GAME,
+        // a whole game the client asked for by connecting or resyncing, and is waiting on; never dropped
+        REQUESTED_GAME,
+        // a single move; a client that misses one notices the gap and asks for the whole game
+        MOVE,
+        // notifications and everything else, which are never dropped
+        OTHER
+    }
+
+    public enum Overflow {
+        // drop the oldest queued LOAD_GAME or MOVE to make room
+        DROP_STALE,
+        // keep only the newest LOAD_GAME queued, and drop the queued MOVEs if that isn't enough
+        COALESCE,
+        // close the connection
+        DISCONNECT
+    }
+
+    public record Stats(String visitorName, int gameID, int queued, int maxQueued, long sent, long dropped) {
+    }
+
+    private record Outgoing(String text, Kind kind) {
+    }
+
     public String visitorName;
     public Session session;
     public int gameID;
+    public boolean moveUpdates;
+
+    private final int queueLimit;
+    private final Overflow overflow;
+    // told when the connection can't be sent to anymore, so it can be dropped
+    private final Consumer<Connection> onClosed;
+
+    private final ArrayDeque<Outgoing> queue = new ArrayDeque<>();
+    private boolean writing;
+    private boolean closed;
+    private int maxQueued;
+    private long sent;
+    private long dropped;
 
-    public Connection(String visitorName, Session session, int gameID) {
+    public Connection(String visitorName, Session session, int gameID, boolean moveUpdates,
+                      int queueLimit, Overflow overflow, Consumer<Connection> onClosed) {
         this.visitorName = visitorName;
         this.session = session;
         this.gameID = gameID;
+        this.moveUpdates = moveUpdates;
+        this.queueLimit = queueLimit;
+        this.overflow = overflow;
+        this.onClosed = onClosed;
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    /**
+     * Queues the message and returns without waiting for it to be written
+     */
+    public void send(String message, Kind kind) {
+        Outgoing next = null;
+        boolean overflowed = false;
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= queueLimit && !makeRoom(kind)) {
+                closed = true;
+                overflowed = true;
+                dropped += queue.size() + 1;
+                queue.clear();
+            } else {
+                queue.addLast(new Outgoing(message, kind));
+                maxQueued = Math.max(maxQueued, queue.size());
+                if (!writing) {
+                    writing = true;
+                    next = queue.pollFirst();
+                }
+            }
+        }
+        if (overflowed) {
+            session.close(StatusCode.TRY_AGAIN_LATER, "Too many messages waiting to be sent");
+            onClosed.accept(this);
+        } else if (next != null) {
+            write(next);
+        }
+    }
+
+    public Stats stats() {
+        synchronized (queue) {
+            return new Stats(visitorName, gameID, queue.size(), maxQueued, sent, dropped);
+        }
+    }
+
+    /**
+     * @return whether there is room for a message of the given kind now
+     */
+    private boolean makeRoom(Kind kind) {
+        return switch (overflow) {
+            case DROP_STALE -> {
+                Iterator<Outgoing> iterator = queue.iterator();
+                while (iterator.hasNext()) {
+                    Kind queued = iterator.next().kind();
+                    if (queued == Kind.LOAD_GAME || queued == Kind.MOVE) {
+                        iterator.remove();
+                        dropped++;
+                        yield true;
+                    }
+                }
+                yield false;
+            }
+            case COALESCE -> {
+                // the one being added is newer than any queued, otherwise keep the last queued
+                boolean keepLast = kind != Kind.LOAD_GAME;
+                Outgoing last = null;
+                for (Outgoing queued : queue) {
+                    if (queued.kind() == Kind.LOAD_GAME) {
+                        last = queued;
+                    }
+                }
+                Outgoing keep = keepLast ? last : null;
+                int before = queue.size();
+                queue.removeIf(queued -> queued.kind() == Kind.LOAD_GAME && queued != keep);
+                if (queue.size() >= queueLimit) {
+                    // missing any move sends the client back for the whole game, so the rest can go too
+                    queue.removeIf(queued -> queued.kind() == Kind.MOVE);
+                }
+                dropped += before - queue.size();
+                yield queue.size() < queueLimit;
+            }
+            case DISCONNECT -> false;
+        };
+    }
+
+    /**
+     * Writes the message and the ones queued behind it. Writes Jetty completes inline are
+     * followed here in a loop; one that completes later carries on from its callback.
+     */
+    private void write(Outgoing outgoing) {
+        while (outgoing != null) {
+            Write write = new Write();
+            session.getRemote().sendString(outgoing.text(), write);
+            if (!write.returned()) {
+                return;
+            }
+            outgoing = written();
+        }
+    }
+
+    /**
+     * @return the next message to write, or null if there's nothing left to write
+     */
+    private Outgoing written() {
+        Outgoing next;
+        synchronized (queue) {
+            sent++;
+            next = closed ? null : queue.pollFirst();
+            if (next == null) {
+                writing = false;
+            }
+        }
+        return next;
+    }
+
+    private void failed(Throwable cause) {
+        synchronized (queue) {
+            closed = true;
+            writing = false;
+            dropped += queue.size();
+            queue.clear();
+        }
+        onClosed.accept(this);
+    }
+
+    /**
+     * One sendString call. A success that arrives before sendString returns is left for
+     * {@link #write} to follow, so the queue never drains by recursion.
+     */
+    private class Write implements WriteCallback {
+        private boolean returned;
+        private boolean succeeded;
+
+        @Override
+        public void writeSuccess() {
+            synchronized (this) {
+                if (!returned) {
+                    succeeded = true;
+                    return;
+                }
+            }
+            write(written());
+        }
+
+        @Override
+        public void writeFailed(Throwable x) {
+            failed(x);
+        }
+
+        /**
+         * Called once sendString returns
+         *
+         * @return whether the write already succeeded, so the caller should write the next one
+         */
+        synchronized boolean returned() {
+            returned = true;
+            return succeeded;
+        }
     }
 }
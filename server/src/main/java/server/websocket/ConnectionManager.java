@@ -1,43 +1,229 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+/**
+ * Tracks which sessions are connected to which games. Connections are indexed by game, so
+ * a broadcast only visits that game's players and observers, and by session, so a closed
+ * socket can be dropped from every game it was in. A user may have several sessions, and
+ * a session may be connected to several games.
+ * <p>
+ * Sends don't wait for the client: each connection queues up to {@code queueLimit}
+ * messages, and a slow client that fills its queue is handled by the overflow policy,
+ * so it never holds up anyone else in the game.
+ * <p>
+ * A broadcast is serialized to JSON once and every session is sent the same String. Each
+ * send still encodes it to UTF-8: Jetty's public API only takes text frames as a String,
+ * and sendBytes would turn them into binary frames that clients don't read as messages.
+ */
 public class ConnectionManager {
-    private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    /**
+     * @param sent         messages written to connections still open
+     * @param dropped      messages connections still open didn't get because of the overflow policy
+     * @param disconnected connections dropped because they overflowed or a write failed
+     */
+    public record Stats(int connections, int queued, int maxQueued, long sent, long dropped, long disconnected) {
+    }
+
+    private final Map<Integer, Set<Connection>> byGame = new ConcurrentHashMap<>();
+    private final Map<Session, Set<Connection>> bySession = new ConcurrentHashMap<>();
+    private final int queueLimit;
+    private final Connection.Overflow overflow;
+    private final AtomicLong disconnected = new AtomicLong();
+
+    public record Settings(int queueLimit, Connection.Overflow overflow) {
+        public static Settings defaults() {
+            return new Settings(64, Connection.Overflow.COALESCE);
+        }
+
+        /**
+         * Reads ws.queueLimit and ws.overflowPolicy (DROP_STALE, COALESCE or DISCONNECT),
+         * falling back to the defaults for any that are missing
+         */
+        public static Settings from(Properties props) {
+            Settings d = defaults();
+            return new Settings(
+                    Integer.parseInt(props.getProperty("ws.queueLimit", String.valueOf(d.queueLimit))),
+                    Connection.Overflow.valueOf(props.getProperty("ws.overflowPolicy", d.overflow.name())
+                            .toUpperCase()));
+        }
+    }
+
+    public ConnectionManager() {
+        this(Settings.defaults());
+    }
+
+    public ConnectionManager(Settings settings) {
+        this(settings.queueLimit(), settings.overflow());
+    }
+
+    public ConnectionManager(int queueLimit, Connection.Overflow overflow) {
+        this.queueLimit = queueLimit;
+        this.overflow = overflow;
+    }
 
     public void add(String visitorName, Session session, int gameID) {
-        var connection = new Connection(visitorName, session, gameID);
-        connections.put(visitorName, connection);
+        add(visitorName, session, gameID, false);
     }
 
-    public void remove(String visitorName) {
-        connections.remove(visitorName);
+    /**
+     * @param moveUpdates whether the session is sent moves by {@link #broadcastMove} instead of the whole game
+     */
+    public void add(String visitorName, Session session, int gameID, boolean moveUpdates) {
+        remove(session, gameID);
+        var connection = new Connection(visitorName, session, gameID, moveUpdates, queueLimit, overflow,
+                this::disconnected);
+        // compute runs atomically per key, so an add can't race a remove that empties the set
+        byGame.compute(gameID, (id, connections) -> {
+            connections = connections == null ? ConcurrentHashMap.newKeySet() : connections;
+            connections.add(connection);
+            return connections;
+        });
+        bySession.compute(session, (s, connections) -> {
+            connections = connections == null ? ConcurrentHashMap.newKeySet() : connections;
+            connections.add(connection);
+            return connections;
+        });
     }
 
-    public void broadcast(int gameID, String excludeUser, String message) throws IOException {
-        var removeList = new ArrayList<Connection>();
-        for (var conn : connections.values()) {
-            if (conn.session.isOpen()) {
-                if (conn.gameID == gameID && !conn.visitorName.equals(excludeUser)) {
-                    conn.send(message);
+    /**
+     * Disconnects the session from one game
+     */
+    public void remove(Session session, int gameID) {
+        var connections = bySession.get(session);
+        if (connections != null) {
+            for (var conn : connections) {
+                if (conn.gameID == gameID) {
+                    remove(conn);
                 }
+            }
+        }
+    }
+
+    /**
+     * Disconnects the session from every game, for when its socket closes
+     */
+    public void removeSession(Session session) {
+        var connections = bySession.remove(session);
+        if (connections != null) {
+            connections.forEach(this::remove);
+        }
+    }
+
+    /**
+     * Sends the message to every open session connected to the game except excludeSession.
+     * A session that can't be sent to is dropped and the rest still get the message.
+     */
+    public void broadcast(int gameID, Session excludeSession, String message) {
+        var connections = byGame.get(gameID);
+        if (connections == null) {
+            return;
+        }
+        for (var conn : connections) {
+            if (!conn.session.isOpen()) {
+                remove(conn);
+            } else if (conn.session != excludeSession) {
+                conn.send(message, Connection.Kind.OTHER);
+            }
+        }
+    }
+
+    /**
+     * Sends a move to everyone connected to the game: sessions that asked for moves get
+     * moveMessage and the rest get the whole game. The whole game is only serialized if
+     * some session needs it, and then only once.
+     */
+    public void broadcastMove(int gameID, String moveMessage, Supplier<String> loadGameMessage) {
+        var connections = byGame.get(gameID);
+        if (connections == null) {
+            return;
+        }
+        String loadGame = null;
+        for (var conn : connections) {
+            if (!conn.session.isOpen()) {
+                remove(conn);
+            } else if (conn.moveUpdates) {
+                conn.send(moveMessage, Connection.Kind.MOVE);
             } else {
-                removeList.add(conn);
+                loadGame = loadGame == null ? loadGameMessage.get() : loadGame;
+                conn.send(loadGame, Connection.Kind.LOAD_GAME);
             }
         }
-        // Clean up closed connections
-        for (var conn : removeList) {
-            connections.remove(conn.visitorName);
+    }
+
+    /**
+     * Sends a message to the session's connection to the game, behind anything already
+     * queued for it, so it arrives in order with the game's broadcasts
+     *
+     * @return false if the session isn't connected to the game
+     */
+    public boolean send(Session session, int gameID, String message, Connection.Kind kind) {
+        var connections = bySession.get(session);
+        if (connections != null) {
+            for (var conn : connections) {
+                if (conn.gameID == gameID) {
+                    conn.send(message, kind);
+                    return true;
+                }
+            }
         }
+        return false;
     }
 
-    public void sendToUser(String username, String message) throws IOException {
-        var conn = connections.get(username);
-        if (conn != null && conn.session.isOpen()) {
-            conn.send(message);
+    public Stats stats() {
+        int count = 0;
+        int queued = 0;
+        int maxQueued = 0;
+        long sent = 0;
+        long dropped = 0;
+        for (var conn : connectionStats()) {
+            count++;
+            queued += conn.queued();
+            maxQueued = Math.max(maxQueued, conn.maxQueued());
+            sent += conn.sent();
+            dropped += conn.dropped();
         }
+        return new Stats(count, queued, maxQueued, sent, dropped, disconnected.get());
+    }
+
+    /**
+     * @return how many sessions are connected to the game
+     */
+    public int audience(int gameID) {
+        var connections = byGame.get(gameID);
+        return connections == null ? 0 : connections.size();
+    }
+
+    /**
+     * @return each connection's queue depth and counts
+     */
+    public List<Connection.Stats> connectionStats() {
+        return bySession.values().stream()
+                .flatMap(Set::stream)
+                .map(Connection::stats)
+                .toList();
+    }
+
+    private void disconnected(Connection conn) {
+        disconnected.incrementAndGet();
+        remove(conn);
+    }
+
+    private void remove(Connection conn) {
+        byGame.computeIfPresent(conn.gameID, (id, connections) -> {
+            connections.remove(conn);
+            return connections.isEmpty() ? null : connections;
+        });
+        bySession.computeIfPresent(conn.session, (s, connections) -> {
+            connections.remove(conn);
+            return connections.isEmpty() ? null : connections;
+        });
     }
 }
@@ -0,0 +1,65 @@
+package server.websocket;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Gives each game a mailbox, so its commands run one at a time in the order they were
+ * submitted, on virtual threads. Commands for different games run in parallel. A command
+ * that fails doesn't stop the ones after it. A game's mailbox is dropped once it is empty,
+ * so idle games cost nothing.
+ */
+public class GameActors {
+    @FunctionalInterface
+    public interface Command {
+        void run() throws Exception;
+    }
+
+    private final Executor executor;
+    // the last command queued for each game with work pending
+    private final Map<Integer, CompletableFuture<Void>> mailboxes = new ConcurrentHashMap<>();
+
+    public GameActors() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public GameActors(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues the command behind the game's earlier ones
+     *
+     * @return completes when the command has run, exceptionally if it threw
+     */
+    public CompletableFuture<Void> submit(int gameID, Command command) {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<Void>[] queued = new CompletableFuture[1];
+        // compute holds the key, so two submits can't both chain onto the same command
+        mailboxes.compute(gameID, (id, last) -> {
+            CompletableFuture<Void> previous = last == null ? CompletableFuture.completedFuture(null) : last;
+            queued[0] = previous.handle((ignored, e) -> null).thenRunAsync(() -> {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }, executor);
+            return queued[0];
+        });
+        queued[0].whenComplete((ignored, e) -> mailboxes.remove(gameID, queued[0]));
+        return queued[0];
+    }
+
+    /**
+     * @return how many games have commands queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+}
@@ -3,67 +3,97 @@ package server.websocket;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.ErrorMessage;
 import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.NotificationMessage;
 
-import java.io.IOException;
 
 @WebSocket
 public class WebSocketHandler {
 
-    private final ConnectionManager connections = new ConnectionManager();
+    private final ConnectionManager connections;
+    private final GameActors games = new GameActors();
     private final DataAccess dataAccess;
     private final Gson gson = new Gson();
 
     public WebSocketHandler(DataAccess dataAccess) {
+        this(dataAccess, new ConnectionManager());
+    }
+
+    public WebSocketHandler(DataAccess dataAccess, ConnectionManager connections) {
         this.dataAccess = dataAccess;
+        this.connections = connections;
     }
 
     @OnWebSocketMessage
-    public void onMessage(Session session, String message) throws IOException {
+    public void onMessage(Session session, String message) {
         UserGameCommand command = gson.fromJson(message, UserGameCommand.class);
-        
+        if (command.getGameID() == null) {
+            sendError(session, command.getGameID(), "Error: no game given");
+            return;
+        }
+
+        // a game's commands run one at a time, so two moves can't both read the same position
+        games.submit(command.getGameID(), () -> handle(session, command, message))
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                });
+    }
+
+    private void handle(Session session, UserGameCommand command, String message) {
         switch (command.getCommandType()) {
-            case CONNECT -> connect(session, command);
+            case CONNECT -> connect(session, gson.fromJson(message, ConnectCommand.class));
             case MAKE_MOVE -> {
                 MakeMoveCommand moveCmd = gson.fromJson(message, MakeMoveCommand.class);
                 makeMove(session, moveCmd);
             }
             case LEAVE -> leave(session, command);
             case RESIGN -> resign(session, command);
+            case RESYNC -> resync(session, command);
         }
     }
 
-    private void connect(Session session, UserGameCommand command) throws IOException {
+    /**
+     * Drops the session from every game it was connected to
+     */
+    public void onClose(Session session) {
+        connections.removeSession(session);
+    }
+
+    private void connect(Session session, ConnectCommand command) {
         try {
             AuthData auth = dataAccess.getAuth(command.getAuthToken());
             if (auth == null) {
-                sendError(session, "Error: unauthorized");
+                sendError(session, command.getGameID(), "Error: unauthorized");
                 return;
             }
             
             GameData game = dataAccess.getGame(command.getGameID());
             if (game == null) {
-                sendError(session, "Error: game not found");
+                sendError(session, command.getGameID(), "Error: game not found");
                 return;
             }
 
             String username = auth.username();
-            connections.add(username, session, command.getGameID());
+            connections.add(username, session, command.getGameID(), command.wantsMoveUpdates());
 
             var loadGame = new LoadGameMessage(game.game());
-            session.getRemote().sendString(gson.toJson(loadGame));
+            connections.send(session, command.getGameID(), gson.toJson(loadGame), Connection.Kind.REQUESTED_GAME);
 
             String role;
             if (username.equals(game.whiteUsername())) {
@@ -76,24 +106,24 @@ public class WebSocketHandler {
             
             String notification = String.format("%s joined the game as %s", username, role);
             var notifyMsg = new NotificationMessage(notification);
-            connections.broadcast(command.getGameID(), username, gson.toJson(notifyMsg));
+            connections.broadcast(command.getGameID(), session, gson.toJson(notifyMsg));
             
         } catch (DataAccessException e) {
-            sendError(session, "Error: " + e.getMessage());
+            sendError(session, command.getGameID(), "Error: " + e.getMessage());
         }
     }
 
-    private void makeMove(Session session, MakeMoveCommand command) throws IOException {
+    private void makeMove(Session session, MakeMoveCommand command) {
         try {
             AuthData auth = dataAccess.getAuth(command.getAuthToken());
             if (auth == null) {
-                sendError(session, "Error: unauthorized");
+                sendError(session, command.getGameID(), "Error: unauthorized");
                 return;
             }
 
             GameData gameData = dataAccess.getGame(command.getGameID());
             if (gameData == null) {
-                sendError(session, "Error: game not found");
+                sendError(session, command.getGameID(), "Error: game not found");
                 return;
             }
 
@@ -101,7 +131,7 @@ public class WebSocketHandler {
             String username = auth.username();
 
             if (game.isGameOver()) {
-                sendError(session, "Error: game is over");
+                sendError(session, command.getGameID(), "Error: game is over");
                 return;
             }
 
@@ -113,18 +143,25 @@ public class WebSocketHandler {
             }
 
             if (playerColor == null) {
-                sendError(session, "Error: you are observing this game");
+                sendError(session, command.getGameID(), "Error: you are observing this game");
                 return;
             }
 
             if (game.getTeamTurn() != playerColor) {
-                sendError(session, "Error: not your turn");
+                sendError(session, command.getGameID(), "Error: not your turn");
                 return;
             }
 
             ChessMove move = command.getMove();
             game.makeMove(move);
 
+            ChessGame.TeamColor opponent = playerColor.opponent();
+            boolean checkmate = game.isInCheckmate(opponent);
+            boolean stalemate = !checkmate && game.isInStalemate(opponent);
+            if (checkmate || stalemate) {
+                game.setGameOver(true);
+            }
+
             GameData updatedGame = new GameData(
                 gameData.gameID(),
                 gameData.whiteUsername(),
@@ -132,52 +169,48 @@ public class WebSocketHandler {
                 gameData.gameName(),
                 game
             );
-            dataAccess.gameUpdate(updatedGame);
+            dataAccess.gameMove(updatedGame, PackedMove.fromChessMove(move));
 
-            var loadGame = new LoadGameMessage(game);
-            connections.broadcast(command.getGameID(), null, gson.toJson(loadGame));
+            var moveMsg = new MoveMessage(move, game.getPly(), game.getZobristKey());
+            connections.broadcastMove(command.getGameID(), gson.toJson(moveMsg),
+                    () -> gson.toJson(new LoadGameMessage(game)));
 
             String moveStr = formatMove(move);
             var notifyMsg = new NotificationMessage(username + " moved " + moveStr);
-            connections.broadcast(command.getGameID(), username, gson.toJson(notifyMsg));
-
-            ChessGame.TeamColor opponent = playerColor == ChessGame.TeamColor.WHITE 
-                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
-            
-            if (game.isInCheckmate(opponent)) {
-                var checkmate = new NotificationMessage(opponent + " is in checkmate! " + username + " wins!");
-                connections.broadcast(command.getGameID(), null, gson.toJson(checkmate));
-                game.setGameOver(true);
-                dataAccess.gameUpdate(updatedGame);
-            } else if (game.isInStalemate(opponent)) {
-                var stalemate = new NotificationMessage("Stalemate! The game is a draw.");
-                connections.broadcast(command.getGameID(), null, gson.toJson(stalemate));
-                game.setGameOver(true);
-                dataAccess.gameUpdate(updatedGame);
+            connections.broadcast(command.getGameID(), session, gson.toJson(notifyMsg));
+
+            if (checkmate) {
+                var checkmateMsg = new NotificationMessage(opponent + " is in checkmate! " + username + " wins!");
+                connections.broadcast(command.getGameID(), null, gson.toJson(checkmateMsg));
+            } else if (stalemate) {
+                var stalemateMsg = new NotificationMessage("Stalemate! The game is a draw.");
+                connections.broadcast(command.getGameID(), null, gson.toJson(stalemateMsg));
             } else if (game.isInCheck(opponent)) {
                 var check = new NotificationMessage(opponent + " is in check!");
                 connections.broadcast(command.getGameID(), null, gson.toJson(check));
             }
 
         } catch (InvalidMoveException e) {
-            sendError(session, "Error: invalid move");
+            sendError(session, command.getGameID(), "Error: invalid move");
         } catch (DataAccessException e) {
-            sendError(session, "Error: " + e.getMessage());
+            sendError(session, command.getGameID(), "Error: " + e.getMessage());
         }
     }
 
-    private void leave(Session session, UserGameCommand command) throws IOException {
+    private void leave(Session session, UserGameCommand command) {
         try {
             AuthData auth = dataAccess.getAuth(command.getAuthToken());
             if (auth == null) {
-                sendError(session, "Error: unauthorized");
+                sendError(session, command.getGameID(), "Error: unauthorized");
                 return;
             }
 
             String username = auth.username();
             GameData gameData = dataAccess.getGame(command.getGameID());
-            
-            if (gameData != null) {
+
+            // only the seats change, so a move made meanwhile isn't overwritten; if the
+            // seats changed since we read them, read them again
+            while (gameData != null) {
                 String white = gameData.whiteUsername();
                 String black = gameData.blackUsername();
                 
@@ -185,33 +218,32 @@ public class WebSocketHandler {
                     white = null;
                 } else if (username.equals(black)) {
                     black = null;
+                } else {
+                    break;
                 }
-                
-                GameData updatedGame = new GameData(
-                    gameData.gameID(),
-                    white,
-                    black,
-                    gameData.gameName(),
-                    gameData.game()
-                );
-                dataAccess.gameUpdate(updatedGame);
+
+                if (dataAccess.compareAndSetPlayers(gameData.gameID(), gameData.whiteUsername(),
+                        gameData.blackUsername(), white, black)) {
+                    break;
+                }
+                gameData = dataAccess.getGame(command.getGameID());
             }
 
-            connections.remove(username);
+            connections.remove(session, command.getGameID());
             
             var notifyMsg = new NotificationMessage(username + " left the game");
-            connections.broadcast(command.getGameID(), username, gson.toJson(notifyMsg));
+            connections.broadcast(command.getGameID(), session, gson.toJson(notifyMsg));
 
         } catch (DataAccessException e) {
-            sendError(session, "Error: " + e.getMessage());
+            sendError(session, command.getGameID(), "Error: " + e.getMessage());
         }
     }
 
-    private void resign(Session session, UserGameCommand command) throws IOException {
+    private void resign(Session session, UserGameCommand command) {
         try {
             AuthData auth = dataAccess.getAuth(command.getAuthToken());
             if (auth == null) {
-                sendError(session, "Error: unauthorized");
+                sendError(session, command.getGameID(), "Error: unauthorized");
                 return;
             }
 
@@ -219,43 +251,70 @@ public class WebSocketHandler {
             GameData gameData = dataAccess.getGame(command.getGameID());
             
             if (gameData == null) {
-                sendError(session, "Error: game not found");
+                sendError(session, command.getGameID(), "Error: game not found");
                 return;
             }
 
             if (!username.equals(gameData.whiteUsername()) && !username.equals(gameData.blackUsername())) {
-                sendError(session, "Error: observers cannot resign");
+                sendError(session, command.getGameID(), "Error: observers cannot resign");
                 return;
             }
 
             ChessGame game = gameData.game();
             
             if (game.isGameOver()) {
-                sendError(session, "Error: game is already over");
+                sendError(session, command.getGameID(), "Error: game is already over");
                 return;
             }
 
             game.setGameOver(true);
-            GameData updatedGame = new GameData(
-                gameData.gameID(),
-                gameData.whiteUsername(),
-                gameData.blackUsername(),
-                gameData.gameName(),
-                game
-            );
-            dataAccess.gameUpdate(updatedGame);
+            dataAccess.gameStateUpdate(gameData.gameID(), game);
 
             var notifyMsg = new NotificationMessage(username + " resigned. Game over.");
             connections.broadcast(command.getGameID(), null, gson.toJson(notifyMsg));
 
         } catch (DataAccessException e) {
-            sendError(session, "Error: " + e.getMessage());
+            sendError(session, command.getGameID(), "Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the whole game to a client whose copy no longer matches the MOVE messages it gets
+     */
+    private void resync(Session session, UserGameCommand command) {
+        try {
+            AuthData auth = dataAccess.getAuth(command.getAuthToken());
+            if (auth == null) {
+                sendError(session, command.getGameID(), "Error: unauthorized");
+                return;
+            }
+
+            GameData gameData = dataAccess.getGame(command.getGameID());
+            if (gameData == null) {
+                sendError(session, command.getGameID(), "Error: game not found");
+                return;
+            }
+
+            // queued behind moves already on their way, which the client ignores while it waits for this
+            String loadGame = gson.toJson(new LoadGameMessage(gameData.game()));
+            send(session, command.getGameID(), loadGame, Connection.Kind.REQUESTED_GAME);
+        } catch (DataAccessException e) {
+            sendError(session, command.getGameID(), "Error: " + e.getMessage());
         }
     }
 
-    private void sendError(Session session, String message) throws IOException {
-        var error = new ErrorMessage(message);
-        session.getRemote().sendString(gson.toJson(error));
+    private void sendError(Session session, Integer gameID, String message) {
+        send(session, gameID, gson.toJson(new ErrorMessage(message)), Connection.Kind.OTHER);
+    }
+
+    /**
+     * Queues the message behind the game's broadcasts to the session. A session that isn't
+     * connected to the game has no queue, so it is sent directly, still without waiting.
+     */
+    private void send(Session session, Integer gameID, String message, Connection.Kind kind) {
+        if (gameID == null || !connections.send(session, gameID, message, kind)) {
+            session.getRemote().sendString(message, WriteCallback.NOOP);
+        }
     }
 
     private String formatMove(ChessMove move) {
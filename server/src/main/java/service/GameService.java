@@ -3,21 +3,57 @@ package service;
 import chess.ChessGame;
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
+import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public class GameService {
+    private static final int JOIN_ATTEMPTS = 5;
+
     private final DataAccess dataAccess;
 
     public GameService(DataAccess dataAccess){
         this.dataAccess = dataAccess;
     }
 
-    public Collection<GameData> games(String authToken) throws DataAccessException {
+    /**
+     * @return every game, read a page at a time
+     */
+    public Collection<GameSummary> games(String authToken) throws DataAccessException {
+        var games = new ArrayList<GameSummary>();
+        GameQuery query = GameQuery.firstPage().withLimit(GameQuery.MAX_LIMIT);
+        while (true) {
+            GamePage page = games(authToken, query);
+            games.addAll(page.games());
+            if (page.nextCursor() == null) {
+                return games;
+            }
+            query = new GameQuery(page.nextCursor(), query.limit(), false, null, null);
+        }
+    }
+
+    /**
+     * @param nextCursor pass as the next query's afterGameID to get the following page, or
+     *                   null if this is the last page
+     */
+    public record GamePage(List<GameSummary> games, Integer nextCursor) {
+    }
+
+    public GamePage games(String authToken, GameQuery query) throws DataAccessException {
         if (dataAccess.getAuth(authToken)==null){
             throw new DataAccessException("no");
         }
-        return dataAccess.games();
+        // one extra game tells us whether there is another page without a count query
+        List<GameSummary> games = dataAccess.games(query.withLimit(query.limit() + 1));
+        if (games.size() <= query.limit()) {
+            return new GamePage(games, null);
+        }
+        List<GameSummary> page = games.subList(0, query.limit());
+        return new GamePage(page, page.get(page.size() - 1).gameID());
     }
 
     public int createGame(String authToken, String gameName) throws DataAccessException {
@@ -29,30 +65,37 @@ public class GameService {
     }
 
     public void joinGame(String authToken, String color, int game) throws DataAccessException {
-        if (dataAccess.getAuth(authToken)==null){
+        AuthData auth = dataAccess.getAuth(authToken);
+        if (auth==null){
             throw new DataAccessException("unauthorized");
         }
-        GameData thisGame = dataAccess.getGame(game);
-        if (thisGame == null){
-            throw new DataAccessException("bad request");
-        }
+        String username = auth.username();
+
+        // the seats may change between reading the game and writing it; re-read and try again
+        for (int attempt = 0; attempt < JOIN_ATTEMPTS; attempt++) {
+            GameData thisGame = dataAccess.getGame(game);
+            if (thisGame == null){
+                throw new DataAccessException("bad request");
+            }
 
-        String username = dataAccess.getAuth(authToken).username();
-        String white = thisGame.whiteUsername();
-        String black = thisGame.blackUsername();
+            String white = thisGame.whiteUsername();
+            String black = thisGame.blackUsername();
 
-        if (color !=null && color.equalsIgnoreCase("WHITE")){
-            if (white!=null){
-                throw new DataAccessException("already taken");
+            if (color !=null && color.equalsIgnoreCase("WHITE")){
+                if (white!=null){
+                    throw new DataAccessException("already taken");
+                }
+                white=username;
+            } else if (color !=null && color.equalsIgnoreCase("BLACK")){
+                if (black != null){
+                    throw new DataAccessException("already taken");
+                }
+                black=username;
             }
-            white=username;
-        } else if (color !=null && color.equalsIgnoreCase("BLACK")){
-            if (black != null){
-                throw new DataAccessException("already taken");
+            if (dataAccess.compareAndSetPlayers(game, thisGame.whiteUsername(), thisGame.blackUsername(), white, black)) {
+                return;
             }
-            black=username;
         }
-        GameData update = new GameData(game, white, black, thisGame.gameName(), thisGame.game());
-        dataAccess.gameUpdate(update);
+        throw new DataAccessException("already taken");
     }
 }
@@ -2,9 +2,9 @@ package service;
 
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
+import dataaccess.PasswordHasher;
 import model.AuthData;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.util.UUID;
 
@@ -29,7 +29,7 @@ public class NewUser {
     public AuthData login(String username, String password) throws DataAccessException {
         UserData user = dataAccess.getUser(username);
 
-        if (user == null || !BCrypt.checkpw(password, user.password())) {
+        if (user == null || !PasswordHasher.shared().check(password, user.password())) {
             throw new DataAccessException("unauthorized");
         }
 
@@ -0,0 +1,180 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import model.AuthData;
+import model.GameData;
+import org.junit.jupiter.api.*;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingDataAccessTest {
+    private int loads;
+    private int authLoads;
+    private CachingDataAccess cache;
+
+    @BeforeEach
+    void setUp() {
+        loads = 0;
+        authLoads = 0;
+        MemoryAccess memory = new MemoryAccess() {
+            @Override
+            public GameData getGame(int game) {
+                loads++;
+                return super.getGame(game);
+            }
+
+            @Override
+            public AuthData getAuth(String authToken) {
+                authLoads++;
+                return super.getAuth(authToken);
+            }
+        };
+        cache = new CachingDataAccess(memory, 2, 8, Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    void servesActiveGamesFromMemory() throws DataAccessException, InvalidMoveException {
+        int gameID = cache.newGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        GameData game = cache.getGame(gameID);
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.game().makeMove(move);
+        cache.gameMove(game, PackedMove.fromChessMove(move));
+
+        GameData reread = cache.getGame(gameID);
+        assertEquals(game.game(), reread.game());
+        assertEquals(1, reread.game().getPly());
+        assertEquals(0, loads);
+        assertEquals(2, cache.stats().hits());
+    }
+
+    @Test
+    void returnsCopies() throws DataAccessException, InvalidMoveException {
+        int gameID = cache.newGame(new GameData(0, null, null, "game", new ChessGame()));
+
+        cache.getGame(gameID).game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        assertEquals(new ChessGame(), cache.getGame(gameID).game());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws DataAccessException {
+        int first = cache.newGame(new GameData(0, null, null, "first", new ChessGame()));
+        int second = cache.newGame(new GameData(0, null, null, "second", new ChessGame()));
+        cache.getGame(first);
+        int third = cache.newGame(new GameData(0, null, null, "third", new ChessGame()));
+
+        cache.getGame(first);
+        cache.getGame(third);
+        assertEquals(0, loads);
+        assertEquals("second", cache.getGame(second).gameName());
+        assertEquals(1, loads);
+        assertEquals(2, cache.stats().evictions());
+    }
+
+    @Test
+    void clearEmptiesCache() throws DataAccessException {
+        int gameID = cache.newGame(new GameData(0, null, null, "game", new ChessGame()));
+        cache.clear();
+        assertNull(cache.getGame(gameID));
+        assertEquals(1, cache.stats().misses());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void clearWaitsForLoadsInFlight() throws Exception {
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        MemoryAccess slow = new MemoryAccess() {
+            @Override
+            public GameData getGame(int game) {
+                GameData loaded = super.getGame(game);
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return loaded;
+            }
+        };
+        // made behind the cache's back, so the first read is a miss
+        int gameID = slow.newGame(new GameData(0, null, null, "game", new ChessGame()));
+        var slowCache = new CachingDataAccess(slow, 2);
+
+        try (var pool = Executors.newFixedThreadPool(2)) {
+            Future<GameData> load = pool.submit(() -> slowCache.getGame(gameID));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            var clearing = new CompletableFuture<Thread>();
+            Future<?> clear = pool.submit(() -> {
+                clearing.complete(Thread.currentThread());
+                slowCache.clear();
+                return null;
+            });
+            Thread thread = clearing.get(10, TimeUnit.SECONDS);
+            while (thread.getState() != Thread.State.WAITING && !clear.isDone()) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            load.get(10, TimeUnit.SECONDS);
+            clear.get(10, TimeUnit.SECONDS);
+        }
+
+        assertNull(slowCache.getGame(gameID));
+    }
+
+    @Test
+    void tokensAreServedFromMemory() throws DataAccessException {
+        cache.auth(new AuthData("token", "user"));
+        assertEquals("user", cache.getAuth("token").username());
+        assertEquals("user", cache.getAuth("token").username());
+        assertEquals(0, authLoads);
+    }
+
+    @Test
+    void unknownTokensAreCached() throws DataAccessException {
+        assertNull(cache.getAuth("nope"));
+        assertNull(cache.getAuth("nope"));
+        assertEquals(1, authLoads);
+        assertEquals(1, cache.stats().authHits());
+    }
+
+    @Test
+    void removedTokensStopWorkingAtOnce() throws DataAccessException {
+        cache.auth(new AuthData("token", "user"));
+        cache.auth(new AuthData("other", "user"));
+        cache.authRemove("token");
+        assertNull(cache.getAuth("token"));
+
+        cache.clear();
+        assertNull(cache.getAuth("other"));
+    }
+
+    @Test
+    void tokenCacheStaysBounded() throws DataAccessException {
+        for (int i = 0; i < 100; i++) {
+            cache.getAuth("token" + i);
+        }
+        assertTrue(cache.stats().authSize() <= 8);
+    }
+
+    @Test
+    void gameStateUpdateKeepsCachedPlayers() throws DataAccessException {
+        int gameID = cache.newGame(new GameData(0, "white", null, "game", new ChessGame()));
+        GameData stale = cache.getGame(gameID);
+        assertTrue(cache.compareAndSetPlayers(gameID, "white", null, "white", "black"));
+
+        stale.game().setGameOver(true);
+        cache.gameStateUpdate(gameID, stale.game());
+        GameData cached = cache.getGame(gameID);
+        assertEquals("black", cached.blackUsername());
+        assertTrue(cached.game().isGameOver());
+        assertEquals(0, loads);
+    }
+}
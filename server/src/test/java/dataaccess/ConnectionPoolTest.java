@@ -0,0 +1,104 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+
+    private static Connection fakeConnection(AtomicBoolean valid) {
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closed.set(true);
+                        yield null;
+                    }
+                    case "isClosed" -> closed.get();
+                    case "isValid" -> valid.get();
+                    case "getAutoCommit" -> true;
+                    default -> null;
+                });
+    }
+
+    private static ConnectionPool.Settings settings(int size, long validateAfter, long idleTimeout, long leakThreshold) {
+        return new ConnectionPool.Settings(size, 50, validateAfter, 1, idleTimeout, leakThreshold);
+    }
+
+    @Test
+    void reusesReturnedConnections() throws Exception {
+        try (var pool = new ConnectionPool(() -> fakeConnection(new AtomicBoolean(true)), settings(2, 5_000, 60_000, 0))) {
+            Connection first;
+            try (var conn = pool.getConnection()) {
+                first = conn;
+            }
+            try (var conn = pool.getConnection()) {
+                assertNotSame(first, conn);
+                assertTrue(first.isClosed());
+            }
+            var stats = pool.stats();
+            assertEquals(1, stats.created());
+            assertEquals(2, stats.borrowed());
+            assertEquals(0, stats.active());
+            assertEquals(1, stats.idle());
+        }
+    }
+
+    @Test
+    void waitsForAFreeConnectionThenTimesOut() throws Exception {
+        try (var pool = new ConnectionPool(() -> fakeConnection(new AtomicBoolean(true)), settings(1, 5_000, 60_000, 0))) {
+            try (var held = pool.getConnection()) {
+                var ex = assertThrows(DataAccessException.class, pool::getConnection);
+                assertTrue(ex.getMessage().contains("connection"));
+                assertEquals(1, pool.stats().active());
+                assertEquals(1, pool.stats().timeouts());
+            }
+            pool.getConnection().close();
+        }
+    }
+
+    @Test
+    void returnedHandleCannotBeUsed() throws Exception {
+        try (var pool = new ConnectionPool(() -> fakeConnection(new AtomicBoolean(true)), settings(1, 5_000, 60_000, 0))) {
+            var conn = pool.getConnection();
+            conn.close();
+            conn.close();
+            assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+            assertEquals(1, pool.stats().idle());
+        }
+    }
+
+    @Test
+    void replacesConnectionsThatFailValidation() throws Exception {
+        AtomicBoolean valid = new AtomicBoolean(true);
+        try (var pool = new ConnectionPool(() -> fakeConnection(valid), settings(1, 0, 60_000, 0))) {
+            pool.getConnection().close();
+            valid.set(false);
+            pool.getConnection().close();
+            assertEquals(2, pool.stats().created());
+            assertEquals(1, pool.stats().closed());
+        }
+    }
+
+    @Test
+    void sweepEvictsIdleConnectionsAndReportsLeaks() throws Exception {
+        try (var pool = new ConnectionPool(() -> fakeConnection(new AtomicBoolean(true)), settings(2, 5_000, 1, 1))) {
+            var returned = pool.getConnection();
+            var leaked = pool.getConnection();
+            returned.close();
+            assertEquals(1, pool.stats().idle());
+            Thread.sleep(5);
+            pool.sweep();
+
+            var stats = pool.stats();
+            assertEquals(0, stats.idle());
+            assertEquals(1, stats.leaks());
+            leaked.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import com.google.gson.Gson;
+import java.util.Arrays;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameCodecTest {
+
+    @Test
+    void roundTripNewGame() throws DataAccessException {
+        ChessGame game = new ChessGame();
+        byte[] bytes = GameCodec.encode(game);
+        assertEquals(26, bytes.length);
+        assertEquals(game, GameCodec.decode(bytes));
+    }
+
+    @Test
+    void roundTripKeepsTurnAndGameOver() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.setGameOver(true);
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+        assertEquals(game, decoded);
+        assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        assertTrue(decoded.isGameOver());
+    }
+
+    @Test
+    void readsLegacyJson() throws DataAccessException {
+        ChessGame game = new ChessGame();
+        byte[] json = new Gson().toJson(game).getBytes();
+        assertTrue(GameCodec.isLegacy(json));
+        assertEquals(game, GameCodec.decode(json));
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThrows(DataAccessException.class, () -> GameCodec.decode(new byte[]{9, 0}));
+    }
+
+    @Test
+    void rejectsTruncatedGame() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(DataAccessException.class, () -> GameCodec.decode(truncated), "length " + length);
+        }
+    }
+
+    @Test
+    void rejectsBadPieceIndex() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+        bytes[10] = (byte) 0xFF;
+        assertThrows(DataAccessException.class, () -> GameCodec.decode(bytes));
+    }
+
+    @Test
+    void rejectsMalformedLegacyJson() {
+        assertThrows(DataAccessException.class, () -> GameCodec.decode("{\"board\":".getBytes()));
+    }
+
+    @Test
+    void snapshotPlusJournalRebuildsGame() throws DataAccessException, InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        byte[] snapshot = GameCodec.encode(game);
+        int snapshotPly = game.getPly();
+
+        int[] journal = {
+                PackedMove.fromChessMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null)),
+                PackedMove.fromChessMove(new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null))
+        };
+        for (int move : journal) {
+            game.doMove(move);
+        }
+
+        ChessGame rebuilt = GameCodec.decode(snapshot);
+        rebuilt.setPly(snapshotPly);
+        for (int move : journal) {
+            rebuilt.doMove(move);
+        }
+        assertEquals(game, rebuilt);
+        assertEquals(4, rebuilt.getPly());
+    }
+}
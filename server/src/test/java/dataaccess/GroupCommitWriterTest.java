@@ -0,0 +1,198 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupCommitWriterTest {
+    // rows in committed transactions, and how many commits it took
+    private final List<Integer> committed = Collections.synchronizedList(new ArrayList<>());
+    private final List<Integer> commits = Collections.synchronizedList(new ArrayList<>());
+    private final List<GroupCommitWriter> writers = new ArrayList<>();
+
+    @AfterEach
+    void closeWriters() {
+        writers.forEach(GroupCommitWriter::close);
+    }
+
+    private GroupCommitWriter writer(GroupCommitWriter.ConnectionSource connections, long windowMillis) {
+        var writer = new GroupCommitWriter(connections, windowMillis, 256);
+        writers.add(writer);
+        return writer;
+    }
+
+    /**
+     * A connection that keeps the ints bound to each batch until commit; binding -1 makes
+     * executeBatch fail the way a duplicate key would
+     */
+    private Connection fakeConnection() {
+        List<Integer> transaction = new ArrayList<>();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> fakeStatement(transaction);
+                    case "commit" -> {
+                        committed.addAll(transaction);
+                        commits.add(transaction.size());
+                        transaction.clear();
+                        yield null;
+                    }
+                    case "rollback" -> {
+                        transaction.clear();
+                        yield null;
+                    }
+                    case "getAutoCommit", "isClosed" -> false;
+                    default -> null;
+                });
+    }
+
+    private PreparedStatement fakeStatement(List<Integer> transaction) {
+        List<Integer> batch = new ArrayList<>();
+        int[] bound = new int[1];
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "setInt" -> {
+                        bound[0] = (int) args[1];
+                        yield null;
+                    }
+                    case "addBatch" -> {
+                        batch.add(bound[0]);
+                        yield null;
+                    }
+                    case "executeBatch" -> {
+                        if (batch.contains(-1)) {
+                            throw new SQLException("Duplicate entry");
+                        }
+                        transaction.addAll(batch);
+                        int[] counts = new int[batch.size()];
+                        batch.clear();
+                        yield counts;
+                    }
+                    default -> null;
+                });
+    }
+
+    private static GroupCommitWriter.Step step(int value) {
+        return new GroupCommitWriter.Step(0, "INSERT", statement -> statement.setInt(1, value));
+    }
+
+    @Test
+    void concurrentWritesShareCommits() throws Exception {
+        var writer = writer(this::fakeConnection, 20);
+        int threads = 32;
+        var start = new CountDownLatch(1);
+        try (var pool = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int value = i;
+                done.add(pool.submit(() -> {
+                    start.await();
+                    writer.write(step(value));
+                    // acknowledged only once its transaction has committed
+                    assertTrue(committed.contains(value));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : done) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        assertEquals(threads, committed.size());
+        assertTrue(commits.size() < threads, "expected writes to share commits, got " + commits);
+        assertEquals(threads, writer.stats().writes());
+    }
+
+    @Test
+    void failedWriteOnlyFailsItsCaller() throws Exception {
+        var writer = writer(this::fakeConnection, 50);
+        try (var pool = Executors.newFixedThreadPool(3)) {
+            Future<?> first = pool.submit(() -> {
+                writer.write(step(1), step(2));
+                return null;
+            });
+            Future<?> bad = pool.submit(() -> {
+                writer.write(step(3), step(-1));
+                return null;
+            });
+            Future<?> last = pool.submit(() -> {
+                writer.write(step(4));
+                return null;
+            });
+
+            first.get(10, TimeUnit.SECONDS);
+            last.get(10, TimeUnit.SECONDS);
+            var ex = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DataAccessException.class, ex.getCause());
+        }
+
+        assertEquals(List.of(1, 2, 4), committed.stream().sorted().toList());
+        assertEquals(1, writer.stats().failures());
+    }
+
+    @Test
+    void connectionFailureFailsTheWrite() {
+        var writer = writer(() -> {
+            throw new DataAccessException("failed to get connection");
+        }, 0);
+        var ex = assertThrows(DataAccessException.class, () -> writer.write(step(1)));
+        assertTrue(ex.getMessage().contains("connection"));
+    }
+
+    @Test
+    void closeCommitsQueuedWritesThenRejects() throws Exception {
+        // a window long enough that only close can end it in time
+        var writer = writer(this::fakeConnection, 60_000);
+        var caller = new CompletableFuture<Thread>();
+        try (var pool = Executors.newFixedThreadPool(1)) {
+            Future<?> queued = pool.submit(() -> {
+                caller.complete(Thread.currentThread());
+                writer.write(step(1));
+                return null;
+            });
+            Thread thread = caller.get(10, TimeUnit.SECONDS);
+            while (thread.getState() != Thread.State.WAITING && !queued.isDone()) {
+                Thread.sleep(1);
+            }
+            writer.close();
+            queued.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of(1), committed);
+        assertThrows(DataAccessException.class, () -> writer.write(step(2)));
+    }
+
+    @Test
+    void interruptedWriterFailsWaitingAndLaterWrites() throws Exception {
+        var writer = writer(this::fakeConnection, 60_000);
+        var caller = new CompletableFuture<Thread>();
+        try (var pool = Executors.newFixedThreadPool(1)) {
+            Future<?> queued = pool.submit(() -> {
+                caller.complete(Thread.currentThread());
+                writer.write(step(1));
+                return null;
+            });
+            Thread thread = caller.get(10, TimeUnit.SECONDS);
+            while (thread.getState() != Thread.State.WAITING && !queued.isDone()) {
+                Thread.sleep(1);
+            }
+            writer.flusher.interrupt();
+
+            var ex = assertThrows(ExecutionException.class, () -> queued.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DataAccessException.class, ex.getCause());
+        }
+
+        assertEquals(List.of(), committed);
+        assertThrows(DataAccessException.class, () -> writer.write(step(2)));
+    }
+}
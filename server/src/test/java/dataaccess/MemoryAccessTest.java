@@ -0,0 +1,109 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.PackedMove;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import org.junit.jupiter.api.*;
+import service.GameService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryAccessTest {
+    private MemoryAccess dataAccess;
+
+    @BeforeEach
+    void setUp() {
+        dataAccess = new MemoryAccess();
+    }
+
+    @Test
+    void concurrentJoinsHaveOneWinner() throws Exception {
+        int gameID = dataAccess.newGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameService service = new GameService(dataAccess);
+        int players = 16;
+        for (int i = 0; i < players; i++) {
+            dataAccess.auth(new AuthData("token" + i, "user" + i));
+        }
+
+        var start = new CountDownLatch(1);
+        List<Future<Boolean>> joins = new ArrayList<>();
+        try (var pool = Executors.newFixedThreadPool(players)) {
+            for (int i = 0; i < players; i++) {
+                String token = "token" + i;
+                joins.add(pool.submit(() -> {
+                    start.await();
+                    try {
+                        service.joinGame(token, "WHITE", gameID);
+                        return true;
+                    } catch (DataAccessException e) {
+                        assertEquals("already taken", e.getMessage());
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int winners = 0;
+            for (var join : joins) {
+                winners += join.get(10, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, winners);
+        }
+        assertNotNull(dataAccess.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    void concurrentCreatesGetDistinctIds() throws Exception {
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        try (var pool = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                pool.submit(() -> ids.add(dataAccess.newGame(new GameData(0, null, null, "game", new ChessGame()))));
+            }
+        }
+        assertEquals(200, ids.size());
+        assertEquals(200, dataAccess.games().size());
+    }
+
+    @Test
+    void gamesIsASnapshot() {
+        dataAccess.newGame(new GameData(0, null, null, "first", new ChessGame()));
+        var games = dataAccess.games();
+        dataAccess.newGame(new GameData(0, null, null, "second", new ChessGame()));
+        assertEquals(1, games.size());
+        assertEquals(new HashSet<>(List.of("first", "second")),
+                new HashSet<>(dataAccess.games().stream().map(GameSummary::gameName).toList()));
+    }
+
+    @Test
+    void movesMustFollowStoredGame() throws DataAccessException {
+        int gameID = dataAccess.newGame(new GameData(0, null, null, "game", new ChessGame()));
+        GameData first = dataAccess.getGame(gameID);
+        GameData second = dataAccess.getGame(gameID);
+        first.game().doMove(PackedMove.of(12, 28));
+        second.game().doMove(PackedMove.of(11, 27));
+
+        dataAccess.gameMove(first, 0);
+        assertThrows(DataAccessException.class, () -> dataAccess.gameMove(second, 0));
+        assertEquals(first.game(), dataAccess.getGame(gameID).game());
+    }
+
+    @Test
+    void gameStateUpdateKeepsPlayers() throws DataAccessException {
+        int gameID = dataAccess.newGame(new GameData(0, "white", null, "game", new ChessGame()));
+        GameData stale = dataAccess.getGame(gameID);
+        assertTrue(dataAccess.compareAndSetPlayers(gameID, "white", null, "white", "black"));
+
+        stale.game().setGameOver(true);
+        dataAccess.gameStateUpdate(gameID, stale.game());
+        GameData stored = dataAccess.getGame(gameID);
+        assertEquals("black", stored.blackUsername());
+        assertTrue(stored.game().isGameOver());
+    }
+}
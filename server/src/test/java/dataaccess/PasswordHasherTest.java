@@ -0,0 +1,76 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTest {
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void close() {
+        if (hasher != null) {
+            hasher.close();
+        }
+    }
+
+    @Test
+    void hashesWithTheConfiguredCost() throws Exception {
+        hasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 4));
+        String hash = hasher.hash("hunter2");
+
+        assertTrue(hash.startsWith("$2a$04$"), hash);
+        assertTrue(hasher.check("hunter2", hash));
+        assertFalse(hasher.check("hunter3", hash));
+        assertEquals(1, hasher.stats().hashed());
+        assertEquals(2, hasher.stats().checked());
+    }
+
+    @Test
+    void rejectsOnceTheQueueIsFull() throws Exception {
+        hasher = new PasswordHasher(new PasswordHasher.Settings(1, 1, 4));
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        try (var callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            // one password being hashed and one waiting fill the hasher
+            Future<?> running = callers.submit(() -> hasher.run(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<String> queued = callers.submit(() -> hasher.hash("queued"));
+            while (hasher.stats().queued() == 0) {
+                Thread.sleep(1);
+            }
+
+            var ex = assertThrows(DataAccessException.class, () -> hasher.hash("turned away"));
+            assertTrue(ex.getMessage().startsWith("server busy"));
+            assertEquals(1, hasher.stats().rejected());
+
+            release.countDown();
+            running.get(10, TimeUnit.SECONDS);
+            assertTrue(hasher.check("queued", queued.get(10, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    void malformedHashFailsTheCheck() {
+        hasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 4));
+        assertThrows(DataAccessException.class, () -> hasher.check("hunter2", "not a hash"));
+    }
+
+    @Test
+    void configureLeavesTheOldHasherWorking() throws Exception {
+        PasswordHasher old = PasswordHasher.shared();
+        PasswordHasher.configure(new PasswordHasher.Settings(1, 4, 4));
+        try {
+            assertNotSame(old, PasswordHasher.shared());
+            // a request that fetched the hasher before the swap
+            assertTrue(old.check("hunter2", old.hash("hunter2")));
+        } finally {
+            PasswordHasher.configure(PasswordHasher.Settings.defaults());
+        }
+    }
+}
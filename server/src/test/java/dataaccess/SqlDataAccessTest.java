@@ -3,6 +3,7 @@ package dataaccess;
 import chess.ChessGame;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.UserData;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,6 +16,13 @@ public class SqlDataAccessTest {
         dataAccess = new SqlDataAccess();
     }
 
+    @AfterAll
+    static void close() {
+        if (dataAccess != null) {
+            dataAccess.close();
+        }
+    }
+
     @BeforeEach
     void clear() throws DataAccessException {
         dataAccess.clear();
@@ -129,6 +137,14 @@ public class SqlDataAccessTest {
         assertEquals(2, games.size());
     }
     @Test
+    void gamesNameFilterIgnoresCase() throws DataAccessException{
+        dataAccess.newGame(new GameData(0, null, null, "Half", new ChessGame()));
+        dataAccess.newGame(new GameData(0, null, null, "Empty", new ChessGame()));
+        var games = dataAccess.games(new GameQuery(0, 10, false, null, "hA"));
+        assertEquals(1, games.size());
+        assertEquals("Half", games.get(0).gameName());
+    }
+    @Test
     void gamesFail() throws DataAccessException{
         var games = dataAccess.games();
         assertTrue(games.isEmpty());
@@ -150,4 +166,16 @@ public class SqlDataAccessTest {
         GameData gameData = new GameData(9999, "white", "black", "Fake Game", new ChessGame());
         assertDoesNotThrow(() -> dataAccess.gameUpdate(gameData));
     }
+    @Test
+    void gameStateUpdateKeepsPlayers() throws DataAccessException{
+        int game = dataAccess.newGame(new GameData(0, "whitePlayer", null, "Test Game", new ChessGame()));
+        GameData stale = dataAccess.getGame(game);
+        assertTrue(dataAccess.compareAndSetPlayers(game, "whitePlayer", null, "whitePlayer", "blackPlayer"));
+
+        stale.game().setGameOver(true);
+        dataAccess.gameStateUpdate(game, stale.game());
+        GameData gameReturn = dataAccess.getGame(game);
+        assertEquals("blackPlayer", gameReturn.blackUsername());
+        assertTrue(gameReturn.game().isGameOver());
+    }
 }
@@ -0,0 +1,98 @@
+package server;
+
+import dataaccess.DataAccess;
+import dataaccess.MemoryAccess;
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lists games with many clients at once against a store whose token lookups block, the
+ * way a JDBC call does, until every client's request is blocked there (or a few seconds
+ * pass), and records how many were blocked at the same time. On Jetty's pool that can't
+ * pass the pool's size; on virtual threads it is limited only by how fast clients connect.
+ * Tagged "load", so it only runs with {@code mvn test -Pload}.
+ */
+@Tag("load")
+public class VirtualThreadLoadTest {
+    private static final int CLIENTS = 400;
+    // how long a lookup waits for the rest of the clients to arrive
+    private static final long MAX_LOOKUP_MILLIS = 3000;
+
+    private record Result(int maxBlocked, long millis) {
+    }
+
+    @Test
+    void virtualThreadsAreNotCappedByThePool() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        String counts = String.format("%d clients: platform threads %d blocked at once, done in %d ms; "
+                        + "virtual threads %d blocked at once, done in %d ms", CLIENTS,
+                platform.maxBlocked(), platform.millis(), virtual.maxBlocked(), virtual.millis());
+
+        assertTrue(platform.maxBlocked() < CLIENTS, "expected the pool to cap concurrency, " + counts);
+        // not always every client: on a small machine connecting them all can outlast the wait
+        assertTrue(virtual.maxBlocked() > platform.maxBlocked(),
+                "expected virtual threads to pass the pool's cap, " + counts);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        AtomicInteger blocked = new AtomicInteger();
+        AtomicInteger maxBlocked = new AtomicInteger();
+        CountDownLatch allArrived = new CountDownLatch(CLIENTS);
+        DataAccess store = new MemoryAccess();
+        // a token lookup that holds its thread like a slow database call
+        DataAccess slow = (DataAccess) Proxy.newProxyInstance(DataAccess.class.getClassLoader(),
+                new Class<?>[]{DataAccess.class}, (proxy, method, args) -> {
+                    boolean lookup = method.getName().equals("getAuth");
+                    if (lookup) {
+                        maxBlocked.accumulateAndGet(blocked.incrementAndGet(), Math::max);
+                        allArrived.countDown();
+                        allArrived.await(MAX_LOOKUP_MILLIS, TimeUnit.MILLISECONDS);
+                        blocked.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(store, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+        String authToken = UUID.randomUUID().toString();
+        store.auth(new AuthData(authToken, "player"));
+
+        Server server = new Server(slow, virtualThreads);
+        int port = server.run(0);
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/game"))
+                    .header("authorization", authToken)
+                    .GET()
+                    .build();
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (var response : responses) {
+                assertEquals(200, response.get(60, TimeUnit.SECONDS).statusCode());
+            }
+            return new Result(maxBlocked.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } finally {
+            server.stop();
+        }
+    }
+}
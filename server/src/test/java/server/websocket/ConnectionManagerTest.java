@@ -0,0 +1,355 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTest {
+    private final ConnectionManager connections = new ConnectionManager();
+
+    /**
+     * A session that keeps what it is sent. A slow one holds each write until
+     * finishWrites; a failing one fails them.
+     */
+    private static class FakeSession {
+        final List<String> received = new ArrayList<>();
+        final List<WriteCallback> pending = new ArrayList<>();
+        boolean open = true;
+        boolean failSends = false;
+        boolean slow = false;
+        // the deepest stack any sendString ran on
+        int deepestSend = 0;
+        final Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open;
+                    case "getRemote" -> remote();
+                    case "close" -> {
+                        open = false;
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+
+        private RemoteEndpoint remote() {
+            return (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString")) {
+                            deepestSend = Math.max(deepestSend, Thread.currentThread().getStackTrace().length);
+                            var callback = (WriteCallback) args[1];
+                            if (failSends) {
+                                callback.writeFailed(new IOException("closed"));
+                            } else {
+                                received.add((String) args[0]);
+                                if (slow) {
+                                    pending.add(callback);
+                                } else {
+                                    callback.writeSuccess();
+                                }
+                            }
+                        }
+                        return null;
+                    });
+        }
+
+        void finishWrites() {
+            slow = false;
+            while (!pending.isEmpty()) {
+                pending.remove(0).writeSuccess();
+            }
+        }
+    }
+
+    @Test
+    void broadcastOnlyReachesTheGame() {
+        var white = new FakeSession();
+        var black = new FakeSession();
+        var elsewhere = new FakeSession();
+        connections.add("white", white.session, 1);
+        connections.add("black", black.session, 1);
+        connections.add("other", elsewhere.session, 2);
+
+        connections.broadcast(1, white.session, "moved");
+
+        assertEquals(List.of(), white.received);
+        assertEquals(List.of("moved"), black.received);
+        assertEquals(List.of(), elsewhere.received);
+    }
+
+    @Test
+    void sameUserOnTwoSessionsGetsBoth() {
+        var first = new FakeSession();
+        var second = new FakeSession();
+        connections.add("user", first.session, 1);
+        connections.add("user", second.session, 1);
+
+        connections.broadcast(1, null, "hello");
+
+        assertEquals(List.of("hello"), first.received);
+        assertEquals(List.of("hello"), second.received);
+        assertEquals(2, connections.audience(1));
+    }
+
+    @Test
+    void removeOnlyLeavesThatGame() {
+        var session = new FakeSession();
+        connections.add("user", session.session, 1);
+        connections.add("user", session.session, 2);
+
+        connections.remove(session.session, 1);
+        connections.broadcast(1, null, "one");
+        connections.broadcast(2, null, "two");
+
+        assertEquals(List.of("two"), session.received);
+        assertEquals(0, connections.audience(1));
+    }
+
+    @Test
+    void closedSessionIsDropped() {
+        var closed = new FakeSession();
+        var failing = new FakeSession();
+        var open = new FakeSession();
+        connections.add("a", closed.session, 1);
+        connections.add("b", failing.session, 1);
+        connections.add("c", open.session, 1);
+        closed.open = false;
+        failing.failSends = true;
+
+        connections.broadcast(1, null, "move");
+
+        assertEquals(List.of("move"), open.received);
+        assertEquals(1, connections.audience(1));
+    }
+
+    @Test
+    void removeSessionLeavesEveryGame() {
+        var session = new FakeSession();
+        connections.add("user", session.session, 1);
+        connections.add("user", session.session, 2);
+
+        connections.removeSession(session.session);
+
+        assertEquals(0, connections.audience(1));
+        assertEquals(0, connections.audience(2));
+    }
+
+    @Test
+    void reconnectingDoesNotDuplicate() {
+        var session = new FakeSession();
+        connections.add("user", session.session, 1);
+        connections.add("user", session.session, 1);
+
+        connections.broadcast(1, null, "once");
+
+        assertEquals(List.of("once"), session.received);
+    }
+
+    @Test
+    void everySessionGetsTheWholeMessage() {
+        List<FakeSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            var session = new FakeSession();
+            sessions.add(session);
+            connections.add("observer" + i, session.session, 1);
+        }
+
+        connections.broadcast(1, null, "white ♔ to move");
+
+        for (var session : sessions) {
+            assertEquals(List.of("white ♔ to move"), session.received);
+        }
+    }
+
+    @Test
+    void broadcastMoveSendsEachSessionWhatItAskedFor() {
+        var wantsMoves = new FakeSession();
+        var wantsGames = new FakeSession();
+        connections.add("a", wantsMoves.session, 1, true);
+        connections.add("b", wantsGames.session, 1, false);
+
+        connections.broadcastMove(1, "move", () -> "game");
+
+        assertEquals(List.of("move"), wantsMoves.received);
+        assertEquals(List.of("game"), wantsGames.received);
+    }
+
+    @Test
+    void broadcastMoveOnlyBuildsTheGameWhenNeeded() {
+        var session = new FakeSession();
+        connections.add("a", session.session, 1, true);
+
+        connections.broadcastMove(1, "move", () -> fail("no session needs the whole game"));
+
+        assertEquals(List.of("move"), session.received);
+    }
+
+    @Test
+    void slowSessionDoesNotHoldUpTheGame() {
+        var slow = new FakeSession();
+        var fast = new FakeSession();
+        slow.slow = true;
+        connections.add("slow", slow.session, 1);
+        connections.add("fast", fast.session, 1);
+
+        for (int i = 0; i < 10; i++) {
+            connections.broadcast(1, null, "move " + i);
+        }
+
+        assertEquals(10, fast.received.size());
+        // only the first is being written; the rest wait in its queue
+        assertEquals(List.of("move 0"), slow.received);
+        slow.finishWrites();
+        assertEquals(fast.received, slow.received);
+    }
+
+    @Test
+    void coalesceKeepsOnlyTheNewestGame() {
+        var manager = new ConnectionManager(3, Connection.Overflow.COALESCE);
+        var slow = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1);
+
+        manager.broadcast(1, null, "joined");
+        manager.broadcastMove(1, "move", () -> "game 1");
+        manager.broadcastMove(1, "move", () -> "game 2");
+        manager.broadcast(1, null, "moved");
+        manager.broadcastMove(1, "move", () -> "game 3");
+        slow.finishWrites();
+
+        assertEquals(List.of("joined", "moved", "game 3"), slow.received);
+        assertEquals(2, manager.stats().dropped());
+    }
+
+    @Test
+    void coalesceDropsQueuedMovesInsteadOfDisconnecting() {
+        var manager = new ConnectionManager(3, Connection.Overflow.COALESCE);
+        var slow = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1, true);
+
+        manager.broadcast(1, null, "joined");
+        for (int i = 1; i <= 4; i++) {
+            manager.broadcastMove(1, "move " + i, () -> "game");
+        }
+        manager.broadcast(1, null, "moved");
+        slow.finishWrites();
+
+        assertTrue(slow.open);
+        assertEquals(List.of("joined", "move 4", "moved"), slow.received);
+        assertEquals(3, manager.stats().dropped());
+        assertEquals(0, manager.stats().disconnected());
+    }
+
+    @Test
+    void dropStaleDropsOldGamesButKeepsNotifications() {
+        var manager = new ConnectionManager(2, Connection.Overflow.DROP_STALE);
+        var slow = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1);
+
+        manager.broadcast(1, null, "joined");
+        manager.broadcastMove(1, "move", () -> "game 1");
+        manager.broadcastMove(1, "move", () -> "game 2");
+        manager.broadcast(1, null, "check");
+        slow.finishWrites();
+
+        assertEquals(List.of("joined", "game 2", "check"), slow.received);
+        assertEquals(1, manager.stats().dropped());
+    }
+
+    @Test
+    void dropStaleKeepsARequestedGame() {
+        var manager = new ConnectionManager(2, Connection.Overflow.DROP_STALE);
+        var slow = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1, true);
+
+        manager.broadcast(1, null, "joined");
+        assertTrue(manager.send(slow.session, 1, "resynced game", Connection.Kind.REQUESTED_GAME));
+        manager.broadcastMove(1, "move 1", () -> "game");
+        manager.broadcastMove(1, "move 2", () -> "game");
+        slow.finishWrites();
+
+        assertEquals(List.of("joined", "resynced game", "move 2"), slow.received);
+        assertEquals(1, manager.stats().dropped());
+    }
+
+    @Test
+    void disconnectClosesASessionThatFallsBehind() {
+        var manager = new ConnectionManager(2, Connection.Overflow.DISCONNECT);
+        var slow = new FakeSession();
+        var fast = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1);
+        manager.add("fast", fast.session, 1);
+
+        for (int i = 0; i < 4; i++) {
+            manager.broadcast(1, null, "move " + i);
+        }
+
+        assertFalse(slow.open);
+        assertEquals(1, manager.audience(1));
+        assertEquals(4, fast.received.size());
+        assertEquals(1, manager.stats().disconnected());
+    }
+
+    @Test
+    void statsReportQueueDepth() {
+        var slow = new FakeSession();
+        slow.slow = true;
+        connections.add("slow", slow.session, 1);
+
+        for (int i = 0; i < 5; i++) {
+            connections.broadcast(1, null, "move " + i);
+        }
+
+        var stats = connections.connectionStats().get(0);
+        assertEquals(4, stats.queued());
+        assertEquals(4, stats.maxQueued());
+        assertEquals(0, stats.sent());
+        slow.finishWrites();
+        assertEquals(5, connections.stats().sent());
+        assertEquals(0, connections.stats().queued());
+    }
+
+    @Test
+    void writesCompletedInlineDoNotRecurse() {
+        var manager = new ConnectionManager(1000, Connection.Overflow.DISCONNECT);
+        var slow = new FakeSession();
+        slow.slow = true;
+        manager.add("slow", slow.session, 1);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add("move " + i);
+            manager.broadcast(1, null, "move " + i);
+        }
+        int firstSend = slow.deepestSend;
+        slow.finishWrites();
+
+        assertEquals(expected, slow.received);
+        assertEquals(1000, manager.stats().sent());
+        assertTrue(slow.deepestSend - firstSend < 50, "the queue drained by recursion");
+    }
+
+    @Test
+    void settingsReadFromProperties() {
+        var props = new Properties();
+        assertEquals(ConnectionManager.Settings.defaults(), ConnectionManager.Settings.from(props));
+
+        props.setProperty("ws.queueLimit", "8");
+        props.setProperty("ws.overflowPolicy", "drop_stale");
+        assertEquals(new ConnectionManager.Settings(8, Connection.Overflow.DROP_STALE),
+                ConnectionManager.Settings.from(props));
+    }
+}
@@ -0,0 +1,74 @@
+package server.websocket;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameActorsTest {
+    private final GameActors actors = new GameActors();
+
+    @Test
+    void gameRunsCommandsInOrderOneAtATime() throws Exception {
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int command = i;
+            done.add(actors.submit(1, () -> {
+                assertEquals(1, running.incrementAndGet(), "two commands ran at once");
+                ran.add(command);
+                running.decrementAndGet();
+            }));
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, ran.get(i));
+        }
+    }
+
+    @Test
+    void gamesRunInParallel() throws Exception {
+        // each game waits for the other, so this only finishes if both run at once
+        var bothStarted = new CountDownLatch(2);
+        var first = actors.submit(1, () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+        });
+        var second = actors.submit(2, () -> {
+            bothStarted.countDown();
+            assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+        });
+        CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void failedCommandDoesNotStopTheGame() throws Exception {
+        var failed = actors.submit(1, () -> {
+            throw new java.io.IOException("closed");
+        });
+        var next = new CompletableFuture<String>();
+        actors.submit(1, () -> next.complete("ran"));
+
+        assertEquals("ran", next.get(10, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void idleGamesAreDropped() throws Exception {
+        for (int game = 0; game < 50; game++) {
+            actors.submit(game, () -> { }).get(10, TimeUnit.SECONDS);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (actors.activeGames() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, actors.activeGames());
+    }
+}
@@ -4,8 +4,13 @@ import dataaccess.DataAccessException;
 import dataaccess.MemoryAccess;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.*;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class GameServiceTest {
@@ -39,6 +44,48 @@ public class GameServiceTest {
     }
 
 
+    @Test
+    void gamesPageThroughCursor() throws DataAccessException{
+        for (int i = 0; i < 5; i++) {
+            gameService.createGame(authToken, "Game " + i);
+        }
+
+        var first = gameService.games(authToken, GameQuery.firstPage().withLimit(2));
+        assertEquals(2, first.games().size());
+        var second = gameService.games(authToken, new GameQuery(first.nextCursor(), 2, false, null, null));
+        var last = gameService.games(authToken, new GameQuery(second.nextCursor(), 2, false, null, null));
+
+        assertEquals(List.of("Game 2", "Game 3"), second.games().stream().map(GameSummary::gameName).toList());
+        assertEquals(List.of("Game 4"), last.games().stream().map(GameSummary::gameName).toList());
+        assertNull(last.nextCursor());
+    }
+    @Test
+    void gamesWithoutAQueryReturnsEveryPage() throws DataAccessException{
+        int count = GameQuery.MAX_LIMIT + 1;
+        for (int i = 0; i < count; i++) {
+            gameService.createGame(authToken, "Game " + i);
+        }
+        assertEquals(count, gameService.games(authToken).size());
+    }
+    @Test
+    void gamesFilter() throws DataAccessException{
+        int full = gameService.createGame(authToken, "Full");
+        gameService.joinGame(authToken, "WHITE", full);
+        gameService.joinGame(authToken, "BLACK", full);
+        int half = gameService.createGame(authToken, "Half");
+        gameService.joinGame(authToken, "WHITE", half);
+        gameService.createGame(authToken, "Empty");
+
+        assertEquals(List.of("Half", "Empty"), names(new GameQuery(0, 10, true, null, null)));
+        assertEquals(List.of("Full", "Half"), names(new GameQuery(0, 10, false, "testuser", null)));
+        assertEquals(List.of("Half"), names(new GameQuery(0, 10, true, "testuser", "Ha")));
+        assertEquals(List.of("Half"), names(new GameQuery(0, 10, false, null, "hA")));
+    }
+
+    private List<String> names(GameQuery query) throws DataAccessException {
+        return gameService.games(authToken, query).games().stream().map(GameSummary::gameName).toList();
+    }
+
     @Test
     void createGameWorks() throws DataAccessException{
         int game = gameService.createGame(authToken, "Test Game");
@@ -0,0 +1,155 @@
+package MoveRules;
+
+import chess.ChessGame;
+
+/**
+ * Precomputed attack sets for every piece type, as bitboards where a1 is bit 0 and h8 is bit 63.
+ * Sliding attacks are looked up by compressing the occupied squares on the piece's lines
+ * (Long.compress, which the JIT turns into PEXT where the CPU has it) into a table index.
+ * All tables are built once when the class loads.
+ */
+public final class AttackTables {
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, 1}, {1, 1}, {1, -1}, {-1, -1}};
+    private static final int[][] KNIGHT_DIRECTIONS = {{-2, 1}, {-2, -1}, {2, 1}, {2, -1}, {1, 2}, {-1, 2}, {1, -2}, {-1, -2}};
+    private static final int[][] KING_DIRECTIONS = {{-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[][] ROOK = new long[64][];
+    private static final long[][] BISHOP = new long[64][];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = rays(square, 0L, KNIGHT_DIRECTIONS, true);
+            KING[square] = rays(square, 0L, KING_DIRECTIONS, true);
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = rays(square, 0L, new int[][]{{-1, 1}, {1, 1}}, true);
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = rays(square, 0L, new int[][]{{-1, -1}, {1, -1}}, true);
+
+            ROOK_MASKS[square] = blockerMask(square, ROOK_DIRECTIONS);
+            BISHOP_MASKS[square] = blockerMask(square, BISHOP_DIRECTIONS);
+            ROOK[square] = slidingTable(square, ROOK_MASKS[square], ROOK_DIRECTIONS);
+            BISHOP[square] = slidingTable(square, BISHOP_MASKS[square], BISHOP_DIRECTIONS);
+
+            fillLines(square, ROOK_DIRECTIONS);
+            fillLines(square, BISHOP_DIRECTIONS);
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return squares a pawn of the given color on the square attacks diagonally
+     */
+    public static long pawn(ChessGame.TeamColor color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK[square][(int) Long.compress(occupied, ROOK_MASKS[square])];
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP[square][(int) Long.compress(occupied, BISHOP_MASKS[square])];
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between the two squares if they share a rank, file or
+     * diagonal, otherwise 0
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the whole rank, file or diagonal through both squares, or 0 if they don't share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static void fillLines(int square, int[][] directions) {
+        for (int[] direction : directions) {
+            long line = (1L << square) | rays(square, 0L, new int[][]{direction, {-direction[0], -direction[1]}}, false);
+            long between = 0L;
+            int col = square % 8 + direction[0];
+            int row = square / 8 + direction[1];
+            while (col >= 0 && col < 8 && row >= 0 && row < 8) {
+                int to = row * 8 + col;
+                BETWEEN[square][to] = between;
+                LINE[square][to] = line;
+                between |= 1L << to;
+                col += direction[0];
+                row += direction[1];
+            }
+        }
+    }
+
+    /**
+     * Walks each direction from the square, stopping on (and including) the first occupied square
+     */
+    private static long rays(int square, long occupied, int[][] directions, boolean isLimited) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int col = square % 8 + direction[0];
+            int row = square / 8 + direction[1];
+            while (col >= 0 && col < 8 && row >= 0 && row < 8) {
+                long bit = 1L << (row * 8 + col);
+                attacks |= bit;
+                if (isLimited || (occupied & bit) != 0) {
+                    break;
+                }
+                col += direction[0];
+                row += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * The squares whose occupancy can change a slider's attacks: its rays without the board edge
+     */
+    private static long blockerMask(int square, int[][] directions) {
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int col = square % 8 + direction[0];
+            int row = square / 8 + direction[1];
+            while (col + direction[0] >= 0 && col + direction[0] < 8 && row + direction[1] >= 0 && row + direction[1] < 8) {
+                mask |= 1L << (row * 8 + col);
+                col += direction[0];
+                row += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] slidingTable(int square, long mask, int[][] directions) {
+        long[] table = new long[1 << Long.bitCount(mask)];
+        long subset = 0L;
+        do {
+            table[(int) Long.compress(subset, mask)] = rays(square, subset, directions, false);
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        return table;
+    }
+}
@@ -0,0 +1,122 @@
+package MoveRules;
+
+import chess.*;
+
+/**
+ * Generates only legal moves. The pieces giving check and the pieces pinned to their
+ * king are worked out once per call, then each pseudo-legal move is accepted or
+ * rejected with a couple of bit tests instead of being played out on the board.
+ */
+public final class LegalMoves {
+    private LegalMoves() {
+    }
+
+    /**
+     * Adds the legal moves of the piece on the square to the buffer
+     */
+    public static void generate(ChessBoard board, int square, MoveBuffer moves) {
+        ChessPiece piece = board.getPiece(square);
+        if (piece != null) {
+            generate(board, piece.getTeamColor(), 1L << square, moves, false);
+        }
+    }
+
+    /**
+     * Adds the legal moves of every piece on the team to the buffer
+     */
+    public static void generate(ChessBoard board, ChessGame.TeamColor team, MoveBuffer moves) {
+        generate(board, team, board.getPieces(team), moves, false);
+    }
+
+    /**
+     * Stops at the first legal move found, which is all checkmate and stalemate need
+     *
+     * @param scratch buffer used while generating, its contents are replaced
+     */
+    public static boolean hasLegalMove(ChessBoard board, ChessGame.TeamColor team, MoveBuffer scratch) {
+        scratch.clear();
+        return generate(board, team, board.getPieces(team), scratch, true);
+    }
+
+    /**
+     * @return true if stopAtFirst is set and a legal move was found
+     */
+    private static boolean generate(ChessBoard board, ChessGame.TeamColor team, long from, MoveBuffer moves,
+                                    boolean stopAtFirst) {
+        int kingSquare = board.getKingSquare(team);
+        ChessGame.TeamColor opponent = team.opponent();
+        long own = board.getPieces(team);
+        long occupied = board.getOccupied();
+
+        // without a king nothing can leave it in check
+        long checkMask = -1L;
+        long pinned = 0L;
+        if (kingSquare >= 0) {
+            long checkers = MoveCalculator.attackersTo(board, kingSquare, opponent, occupied);
+            if (Long.bitCount(checkers) > 1) {
+                checkMask = 0L;
+            } else if (checkers != 0) {
+                checkMask = checkers | AttackTables.between(kingSquare, Long.numberOfTrailingZeros(checkers));
+            }
+            pinned = pinned(board, kingSquare, opponent, own, occupied);
+        }
+
+        while (from != 0) {
+            int square = Long.numberOfTrailingZeros(from);
+            from &= from - 1;
+
+            int start = moves.size();
+            ChessPiece piece = board.getPiece(square);
+            piece.pieceMoves(board, square, moves);
+
+            int kept = start;
+            if (square == kingSquare) {
+                long withoutKing = occupied & ~(1L << square);
+                for (int i = start; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if (MoveCalculator.attackersTo(board, PackedMove.to(move), opponent, withoutKing) == 0) {
+                        moves.set(kept++, move);
+                    }
+                }
+            } else {
+                long allowed = checkMask;
+                if ((pinned & (1L << square)) != 0) {
+                    allowed &= AttackTables.line(kingSquare, square);
+                }
+                for (int i = start; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    if ((allowed & (1L << PackedMove.to(move))) != 0) {
+                        moves.set(kept++, move);
+                    }
+                }
+            }
+            moves.truncate(kept);
+
+            if (stopAtFirst && kept > start) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks from the king through the team's own pieces for enemy sliders; a slider with
+     * exactly one of our pieces between it and the king pins that piece
+     */
+    private static long pinned(ChessBoard board, int kingSquare, ChessGame.TeamColor opponent, long own, long occupied) {
+        long enemies = board.getPieces(opponent);
+        long queens = board.getPieces(opponent, ChessPiece.PieceType.QUEEN);
+        long snipers = (AttackTables.rook(kingSquare, enemies) & (board.getPieces(opponent, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishop(kingSquare, enemies) & (board.getPieces(opponent, ChessPiece.PieceType.BISHOP) | queens));
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            long blockers = AttackTables.between(kingSquare, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & own) != 0) {
+                pinned |= blockers;
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+}
@@ -2,52 +2,36 @@ package MoveRules;
 
 import chess.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public interface  MoveCalculator {
-    static boolean onBoard(ChessPosition position){
-        int row = position.getRow();
-        int col = position.getColumn();
-        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
-    }
-    static List<ChessMove> generateMoves(ChessBoard board, ChessPosition startPosition, int[][] directions, boolean isLimited) {
-        List<ChessMove> moves = new ArrayList<>();
-        ChessPiece startPiece = board.getPiece(startPosition);
-        ChessGame.TeamColor team = startPiece.getTeamColor();
-
-        for (int[] direction : directions) {
-            boolean pieceInPlace = false;
-            int steps = 1;
-
-            while (!pieceInPlace) {
-                int endRow = startPosition.getRow() + direction[1] * steps;
-                int endCol = startPosition.getColumn() + direction[0] * steps;
-                ChessPosition endPosition = new ChessPosition(endRow, endCol);
-
-                if (!onBoard(endPosition)) {
-                    break;
-                }
-
-                ChessPiece endPiece = board.getPiece(endPosition);
-                if (endPiece == null) {
-                    moves.add(new ChessMove(startPosition, endPosition, null));
-                } else if (endPiece.getTeamColor() != team) {
-                    moves.add(new ChessMove(startPosition, endPosition, null));
-                    pieceInPlace = true;
-                } else {
-                    pieceInPlace = true;
-                }
-
-                if (isLimited) {
-                    pieceInPlace = true;;
-                }
-
-                steps++;
-            }
+    /**
+     * Adds a move to every square the piece on the square attacks that isn't held
+     * by its own team
+     */
+    static void addMoves(ChessBoard board, int square, long attacks, MoveBuffer moves) {
+        ChessGame.TeamColor team = board.getPiece(square).getTeamColor();
+        long enemies = board.getPieces(team.opponent());
+        long targets = attacks & ~board.getPieces(team);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int flags = (enemies & (1L << to)) != 0 ? PackedMove.CAPTURE : 0;
+            moves.add(PackedMove.of(square, to, null, flags));
+            targets &= targets - 1;
         }
+    }
 
-        return moves;
+    /**
+     * Probes outward from the square with each piece type's attack pattern, which finds
+     * every attacker without generating the attacking side's moves
+     *
+     * @return bitboard of the attacker's pieces that attack the square
+     */
+    static long attackersTo(ChessBoard board, int square, ChessGame.TeamColor attacker, long occupied) {
+        long queens = board.getPieces(attacker, ChessPiece.PieceType.QUEEN);
+        return (AttackTables.pawn(attacker.opponent(), square) & board.getPieces(attacker, ChessPiece.PieceType.PAWN))
+                | (AttackTables.knight(square) & board.getPieces(attacker, ChessPiece.PieceType.KNIGHT))
+                | (AttackTables.king(square) & board.getPieces(attacker, ChessPiece.PieceType.KING))
+                | (AttackTables.rook(square, occupied) & (board.getPieces(attacker, ChessPiece.PieceType.ROOK) | queens))
+                | (AttackTables.bishop(square, occupied) & (board.getPieces(attacker, ChessPiece.PieceType.BISHOP) | queens));
     }
 
 }
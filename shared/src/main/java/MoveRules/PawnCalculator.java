@@ -2,59 +2,52 @@ package MoveRules;
 
 import chess.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public interface PawnCalculator extends MoveCalculator{
-    static List<ChessMove> pawn(ChessBoard board, ChessPosition startPosition, ChessGame.TeamColor team){
+    static void pawn(ChessBoard board, int square, ChessGame.TeamColor team, MoveBuffer moves){
         int pawnDirection;
-        List<ChessMove> moves = new ArrayList<>();
+        int startRow;
         if (team == ChessGame.TeamColor.WHITE) {
-            pawnDirection = 1;
+            pawnDirection = 8;
+            startRow = 1;
         } else {
-            pawnDirection = -1;
+            pawnDirection = -8;
+            startRow = 6;
         }
 
-        ChessPosition movement = new ChessPosition(startPosition.getRow() + pawnDirection, startPosition.getColumn());
-        if (MoveCalculator.onBoard(movement) && board.getPiece(movement) == null) {
-            pawnMove(moves, startPosition, movement, team, board);
-        }
+        long occupied = board.getOccupied();
 
-        if ((team == ChessGame.TeamColor.WHITE && startPosition.getRow() == 2) || (team == ChessGame.TeamColor.BLACK && startPosition.getRow() == 7)){
-            ChessPosition secondMovement = new ChessPosition(startPosition.getRow() + 2 * pawnDirection, startPosition.getColumn());
-            if (MoveCalculator.onBoard(secondMovement) && board.getPiece(secondMovement) == null && board.getPiece(movement) == null){
-                moves.add(new ChessMove(startPosition, secondMovement, null));
+        int movement = square + pawnDirection;
+        if (movement >= 0 && movement < 64 && (occupied & (1L << movement)) == 0) {
+            pawnMove(moves, square, movement, team, 0);
+
+            int secondMovement = movement + pawnDirection;
+            if (square / 8 == startRow && (occupied & (1L << secondMovement)) == 0) {
+                moves.add(PackedMove.of(square, secondMovement, null, PackedMove.DOUBLE_PAWN_PUSH));
             }
         }
 
-        int[][] pawnCaptures = {{pawnDirection, -1}, {pawnDirection, 1}};
-        for (int[] capture : pawnCaptures) {
-            ChessPosition capturePosition = new ChessPosition(startPosition.getRow() + capture[0], startPosition.getColumn() + capture[1]);
-            if (MoveCalculator.onBoard(capturePosition)){
-                ChessPiece endPiece = board.getPiece(capturePosition);
-                if (endPiece != null && endPiece.getTeamColor() != team) {
-                    pawnMove(moves, startPosition, capturePosition, team, board);
-                }
-            }
+        long captures = AttackTables.pawn(team, square) & board.getPieces(team.opponent());
+        while (captures != 0) {
+            pawnMove(moves, square, Long.numberOfTrailingZeros(captures), team, PackedMove.CAPTURE);
+            captures &= captures - 1;
         }
-        return moves;
     }
 
-    private static void pawnMove(List<ChessMove> moves, ChessPosition startPosition, ChessPosition endPosition, ChessGame.TeamColor team, ChessBoard board){
+    private static void pawnMove(MoveBuffer moves, int from, int to, ChessGame.TeamColor team, int flags){
         int promo;
         if (team == ChessGame.TeamColor.WHITE) {
-            promo = 8;
+            promo = 7;
         } else {
-            promo = 1;
+            promo = 0;
         }
 
-        if (endPosition.getRow() == promo) {
-            moves.add(new ChessMove(startPosition, endPosition, ChessPiece.PieceType.QUEEN));
-            moves.add(new ChessMove(startPosition, endPosition, ChessPiece.PieceType.KNIGHT));
-            moves.add(new ChessMove(startPosition, endPosition, ChessPiece.PieceType.ROOK));
-            moves.add(new ChessMove(startPosition, endPosition, ChessPiece.PieceType.BISHOP));
+        if (to / 8 == promo) {
+            moves.add(PackedMove.of(from, to, ChessPiece.PieceType.QUEEN, flags));
+            moves.add(PackedMove.of(from, to, ChessPiece.PieceType.KNIGHT, flags));
+            moves.add(PackedMove.of(from, to, ChessPiece.PieceType.ROOK, flags));
+            moves.add(PackedMove.of(from, to, ChessPiece.PieceType.BISHOP, flags));
         } else {
-            moves.add(new ChessMove(startPosition, endPosition, null));
+            moves.add(PackedMove.of(from, to, null, flags));
         }
     }
 }
@@ -2,12 +2,10 @@ package MoveRules;
 
 import chess.*;
 
-import java.util.List;
-
 public class PawnMoves implements PawnCalculator{
-    public static List<ChessMove> makeMoves(ChessBoard board, ChessPosition startPosition){
-        ChessPiece pawn = board.getPiece(startPosition);
+    public static void makeMoves(ChessBoard board, int square, MoveBuffer moves) {
+        ChessPiece pawn = board.getPiece(square);
         ChessGame.TeamColor team = pawn.getTeamColor();
-        return PawnCalculator.pawn(board, startPosition, team);
+        PawnCalculator.pawn(board, square, team, moves);
     }
 }
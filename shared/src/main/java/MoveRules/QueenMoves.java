@@ -1,14 +1,10 @@
 package MoveRules;
 
 import chess.ChessBoard;
-import chess.ChessMove;
-import chess.ChessPosition;
-
-import java.util.List;
+import chess.MoveBuffer;
 
 public class QueenMoves {
-    public static List<ChessMove> makeMoves(ChessBoard board, ChessPosition startPosition){
-        int [][] directions = {{-1, 1}, {0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}};
-        return MoveCalculator.generateMoves(board, startPosition, directions, false);
+    public static void makeMoves(ChessBoard board, int square, MoveBuffer moves) {
+        MoveCalculator.addMoves(board, square, AttackTables.queen(square, board.getOccupied()), moves);
     }
 }
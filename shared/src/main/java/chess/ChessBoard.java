@@ -10,8 +10,30 @@ import java.util.Arrays;
  */
 public class ChessBoard {
     private ChessPiece[][] squares = new ChessPiece[8][8];
+
+    // bitboards mirror squares so move generation can work on whole sets of squares at once.
+    // They are transient so the JSON form of a board stays the same, and are rebuilt from
+    // squares the first time they're needed after deserialization
+    private transient long[] pieceBitboards;
+    private transient long[] colorBitboards;
+    private transient long zobristKey;
+
     public ChessBoard() {
-        
+
+    }
+
+    /**
+     * Copies another board. Pieces are immutable, so they are shared rather than copied
+     */
+    public ChessBoard(ChessBoard other) {
+        for (int row = 0; row < 8; row++) {
+            squares[row] = other.squares[row].clone();
+        }
+        if (other.pieceBitboards != null) {
+            pieceBitboards = other.pieceBitboards.clone();
+            colorBitboards = other.colorBitboards.clone();
+            zobristKey = other.zobristKey;
+        }
     }
 
     /**
@@ -21,7 +43,32 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        squares[position.getRow()-1][position.getColumn()-1] = piece;
+        addPiece(position.toSquare(), piece);
+    }
+
+    /**
+     * Adds a chess piece to the chessboard
+     *
+     * @param square where to add the piece to, a1 is 0 and h8 is 63
+     * @param piece  the piece to add, or null to empty the square
+     */
+    public void addPiece(int square, ChessPiece piece) {
+        ChessPiece old = squares[square >> 3][square & 7];
+        squares[square >> 3][square & 7] = piece;
+
+        if (pieceBitboards != null) {
+            long bit = 1L << square;
+            if (old != null) {
+                pieceBitboards[old.index()] &= ~bit;
+                colorBitboards[old.getTeamColor().ordinal()] &= ~bit;
+                zobristKey ^= Zobrist.piece(old, square);
+            }
+            if (piece != null) {
+                pieceBitboards[piece.index()] |= bit;
+                colorBitboards[piece.getTeamColor().ordinal()] |= bit;
+                zobristKey ^= Zobrist.piece(piece, square);
+            }
+        }
     }
 
     /**
@@ -36,36 +83,93 @@ public class ChessBoard {
     }
 
     /**
-     * Sets the board to the default starting board
-     * (How the game of chess normally starts)
+     * @param square a1 is 0 and h8 is 63
+     * @return Either the piece on the square, or null if it is empty
      */
-    public void resetBoard() {
-        squares = new ChessPiece[8][8];
+    public ChessPiece getPiece(int square) {
+        return squares[square >> 3][square & 7];
+    }
 
-        addPiece(new ChessPosition(1,1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1,8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8,1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8,8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+    /**
+     * @return bitboard of every square holding a piece of the given color and type
+     */
+    public long getPieces(ChessGame.TeamColor color, ChessPiece.PieceType type) {
+        return bitboards()[ChessPiece.index(color, type)];
+    }
 
-        addPiece(new ChessPosition(1,2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1,7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8,7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+    /**
+     * @return bitboard of every square holding a piece of the given color
+     */
+    public long getPieces(ChessGame.TeamColor color) {
+        bitboards();
+        return colorBitboards[color.ordinal()];
+    }
+
+    /**
+     * @return bitboard of every occupied square
+     */
+    public long getOccupied() {
+        bitboards();
+        return colorBitboards[0] | colorBitboards[1];
+    }
+
+    /**
+     * The king bitboard is kept up to date by every addPiece, so this is a single
+     * bit scan rather than a search of the board
+     *
+     * @return square of the team's king, or -1 if it has none
+     */
+    public int getKingSquare(ChessGame.TeamColor color) {
+        long king = getPieces(color, ChessPiece.PieceType.KING);
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * @return Zobrist key of the pieces on the board, kept up to date by addPiece
+     */
+    public long getZobristKey() {
+        bitboards();
+        return zobristKey;
+    }
 
-        addPiece(new ChessPosition(1,3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1,6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8,6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+    private long[] bitboards() {
+        if (pieceBitboards == null) {
+            pieceBitboards = new long[12];
+            colorBitboards = new long[2];
+            zobristKey = 0L;
+            for (int square = 0; square < 64; square++) {
+                ChessPiece piece = getPiece(square);
+                if (piece != null) {
+                    pieceBitboards[piece.index()] |= 1L << square;
+                    colorBitboards[piece.getTeamColor().ordinal()] |= 1L << square;
+                    zobristKey ^= Zobrist.piece(piece, square);
+                }
+            }
+        }
+        return pieceBitboards;
+    }
 
-        addPiece(new ChessPosition(1,4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8,4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+    /**
+     * Sets the board to the default starting board
+     * (How the game of chess normally starts)
+     */
+    public void resetBoard() {
+        squares = new ChessPiece[8][8];
+        pieceBitboards = new long[12];
+        colorBitboards = new long[2];
+        zobristKey = 0L;
 
-        addPiece(new ChessPosition(1,5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8,5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        ChessPiece.PieceType[] backRow = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
 
         for (int i = 0; i < 8; i++) {
-            addPiece(new ChessPosition(2,i+1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            addPiece(new ChessPosition(7,i+1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(1, i+1), ChessPiece.of(ChessGame.TeamColor.WHITE, backRow[i]));
+            addPiece(ChessPosition.of(8, i+1), ChessPiece.of(ChessGame.TeamColor.BLACK, backRow[i]));
+            addPiece(ChessPosition.of(2, i+1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+            addPiece(ChessPosition.of(7, i+1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
         }
     }
 
@@ -95,11 +199,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(squares, that.squares);
+        return getZobristKey() == that.getZobristKey() && Arrays.equals(pieceBitboards, that.pieceBitboards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(squares);
+        return Long.hashCode(getZobristKey());
     }
 }
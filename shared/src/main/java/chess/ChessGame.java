@@ -1,5 +1,8 @@
 package chess;
 
+import MoveRules.LegalMoves;
+import MoveRules.MoveCalculator;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
@@ -14,12 +17,34 @@ public class ChessGame {
     private ChessBoard board;
     private TeamColor turn;
     private boolean gameOver = false;
+    // half-moves played since the start of the game
+    private int ply = 0;
+
+    // scratch space for move generation, reused so checking moves doesn't allocate
+    private transient MoveBuffer legalMoves = new MoveBuffer();
+
+    // one entry per move made since setBoard: the packed move in the low bits, the
+    // captured piece's index + 1 (0 for none) above them, and whether the game was over
+    private static final int UNDO_GAME_OVER = 1 << 19;
+    private transient int[] undoStack = new int[64];
+    private transient int undoSize = 0;
+
     public ChessGame() {
         board = new ChessBoard();
         board.resetBoard();
         turn = TeamColor.WHITE;
     }
 
+    /**
+     * Copies another game's position, turn, ply and game over flag. Its undo history is not copied
+     */
+    public ChessGame(ChessGame other) {
+        board = new ChessBoard(other.board);
+        turn = other.turn;
+        gameOver = other.gameOver;
+        ply = other.ply;
+    }
+
     public boolean isGameOver() {
         return gameOver;
     }
@@ -28,6 +53,17 @@ public class ChessGame {
         this.gameOver = gameOver;
     }
 
+    /**
+     * @return how many half-moves have been played in this game
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    public void setPly(int ply) {
+        this.ply = ply;
+    }
+
     /**
      * @return Which team's turn it is
      */
@@ -49,7 +85,11 @@ public class ChessGame {
      */
     public enum TeamColor {
         WHITE,
-        BLACK
+        BLACK;
+
+        public TeamColor opponent() {
+            return this == WHITE ? BLACK : WHITE;
+        }
     }
 
     /**
@@ -60,6 +100,32 @@ public class ChessGame {
      * startPosition
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
+        if (board.getPiece(startPosition) == null) {
+            return null;
+        }
+
+        MoveBuffer moves = new MoveBuffer();
+        validMoves(startPosition.toSquare(), moves);
+        return moves.toMoves();
+    }
+
+    /**
+     * Adds the valid moves for the piece on the square to the buffer as packed ints,
+     * without allocating
+     *
+     * @param square the piece to get valid moves for, a1 is 0 and h8 is 63
+     * @param moves  buffer the moves are appended to
+     */
+    public void validMoves(int square, MoveBuffer moves) {
+        LegalMoves.generate(board, square, moves);
+    }
+
+    /**
+     * The original way of finding valid moves: try every move on the board and keep the
+     * ones that don't leave the king in check. It's much slower than LegalMoves, but simple
+     * enough to trust, so tests compare the two.
+     */
+    Collection<ChessMove> referenceValidMoves(ChessPosition startPosition) {
         ChessPiece currPiece = board.getPiece(startPosition);
         if (currPiece == null) {
             return null;
@@ -91,30 +157,88 @@ public class ChessGame {
      * @throws InvalidMoveException if move is invalid
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
-        ChessPiece piece = board.getPiece(move.getStartPosition());
+        if (move == null || move.getStartPosition() == null || move.getEndPosition() == null
+                || !move.getStartPosition().isOnBoard() || !move.getEndPosition().isOnBoard()) {
+            throw new InvalidMoveException("Off the board");
+        }
+        int start = move.getStartPosition().toSquare();
+        ChessPiece piece = board.getPiece(start);
 
         if (piece == null || piece.getTeamColor() != turn) {
             throw new InvalidMoveException("No");
         }
 
-        Collection<ChessMove> possibleMoves = validMoves(move.getStartPosition());
-        if (!possibleMoves.contains(move)){
+        legalMoves.clear();
+        validMoves(start, legalMoves);
+        if (!legalMoves.contains(PackedMove.fromChessMove(move))){
             throw new InvalidMoveException("No");
         }
 
-        board.addPiece(move.getStartPosition(), null);
+        doMove(PackedMove.fromChessMove(move));
+    }
 
-        if (move.getPromotionPiece() != null) {
-            board.addPiece(move.getEndPosition(), new ChessPiece(turn, move.getPromotionPiece()));
-        } else {
-            board.addPiece(move.getEndPosition(), piece);
+    /**
+     * Plays a move without checking that it is valid, remembering what's needed to take
+     * it back with {@link #undoMove()}
+     *
+     * @param move packed move (see {@link PackedMove}) to play
+     */
+    public void doMove(int move) {
+        int start = PackedMove.from(move);
+        int end = PackedMove.to(move);
+        ChessPiece piece = board.getPiece(start);
+        ChessPiece captured = board.getPiece(end);
+
+        if (undoSize == undoStack.length) {
+            int[] grown = new int[undoStack.length * 2];
+            System.arraycopy(undoStack, 0, grown, 0, undoSize);
+            undoStack = grown;
         }
+        undoStack[undoSize++] = PackedMove.withoutFlags(move) | ((captured == null ? 0 : captured.index() + 1) << 15)
+                | (gameOver ? UNDO_GAME_OVER : 0);
 
-        if (turn == TeamColor.WHITE) {
-            turn = TeamColor.BLACK;
+        board.addPiece(start, null);
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            board.addPiece(end, ChessPiece.of(piece.getTeamColor(), promotion));
         } else {
-            turn = TeamColor.WHITE;
+            board.addPiece(end, piece);
         }
+
+        turn = turn.opponent();
+        ply++;
+    }
+
+    /**
+     * Takes back the last move made with {@link #doMove(int)} or {@link #makeMove(ChessMove)}
+     *
+     * @throws IllegalStateException if there is no move to take back
+     */
+    public void undoMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        int entry = undoStack[--undoSize];
+        int start = PackedMove.from(entry);
+        int end = PackedMove.to(entry);
+        int captured = (entry >>> 15) & 0xF;
+
+        gameOver = (entry & UNDO_GAME_OVER) != 0;
+        turn = turn.opponent();
+        ply--;
+        ChessPiece piece = board.getPiece(end);
+        if (PackedMove.promotion(entry) != null) {
+            piece = ChessPiece.of(turn, ChessPiece.PieceType.PAWN);
+        }
+        board.addPiece(start, piece);
+        board.addPiece(end, captured == 0 ? null : ChessPiece.fromIndex(captured - 1));
+    }
+
+    /**
+     * @return how many moves can be taken back with {@link #undoMove()}
+     */
+    public int getUndoDepth() {
+        return undoSize;
     }
 
     /**
@@ -124,41 +248,11 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPos = null;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++){
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null){
-                    if (piece.getTeamColor() == teamColor) {
-                        if (piece.getPieceType() == ChessPiece.PieceType.KING) {
-                            kingPos = position;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (kingPos != null) {
-                break;
-            }
-        }
-
-        for (int row = 1; row <= 8; row++){
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() != teamColor) {
-                    Collection<ChessMove> oppMoves = piece.pieceMoves(board, position);
-                    for (ChessMove move : oppMoves) {
-                        if (move.getEndPosition().equals(kingPos)) {
-                            return true;
-                        }
-                    }
-                }
-            }
+        int kingSquare = board.getKingSquare(teamColor);
+        if (kingSquare < 0) {
+            return false;
         }
-
-        return false;
+        return MoveCalculator.attackersTo(board, kingSquare, teamColor.opponent(), board.getOccupied()) != 0;
     }
 
     /**
@@ -196,19 +290,7 @@ public class ChessGame {
      * returns true to see if there is no way to get out of check or stalemate
      */
     private boolean cantMove (TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor){
-                    Collection<ChessMove> everyMove = validMoves(position);
-                    if (!everyMove.isEmpty()){
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+        return !LegalMoves.hasLegalMove(board, teamColor, legalMoves);
     }
 
 
@@ -219,6 +301,7 @@ public class ChessGame {
      */
     public void setBoard(ChessBoard board) {
         this.board = board;
+        undoSize = 0;
     }
 
     /**
@@ -230,6 +313,14 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * @return 64-bit Zobrist key identifying the position: the pieces and the side to move
+     */
+    public long getZobristKey() {
+        long key = board.getZobristKey();
+        return turn == TeamColor.BLACK ? key ^ Zobrist.side() : key;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj){
@@ -244,7 +335,7 @@ public class ChessGame {
 
     @Override
     public int hashCode() {
-        return Objects.hash(turn, board);
+        return Long.hashCode(getZobristKey());
     }
 
     @Override
@@ -11,6 +11,17 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessPiece {
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                ChessPiece piece = new ChessPiece(color, type);
+                PIECES[piece.index()] = piece;
+            }
+        }
+    }
+
     private final PieceType pieceType;
     private final ChessGame.TeamColor teamColor;
 
@@ -19,6 +30,29 @@ public class ChessPiece {
         this.teamColor = pieceColor;
     }
 
+    /**
+     * Pieces are immutable, so boards share one instance per color and type
+     * instead of allocating a new piece every time one is placed
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[index(pieceColor, type)];
+    }
+
+    public static ChessPiece fromIndex(int index) {
+        return PIECES[index];
+    }
+
+    /**
+     * @return index of this piece's bitboard, 0-5 for white and 6-11 for black
+     */
+    public int index() {
+        return index(teamColor, pieceType);
+    }
+
+    public static int index(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return pieceColor.ordinal() * 6 + type.ordinal();
+    }
+
     /**
      * The various different chess piece options
      */
@@ -53,15 +87,24 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        return switch (pieceType) {
-            case BISHOP -> BishopMoves.makeMoves(board, myPosition);
-            case KING -> KingMoves.makeMoves(board, myPosition);
-            case KNIGHT -> KnightMoves.makeMoves(board, myPosition);
-            case ROOK -> RookMoves.makeMoves(board, myPosition);
-            case QUEEN -> QueenMoves.makeMoves(board, myPosition);
-            case PAWN -> PawnMoves.makeMoves(board, myPosition);
-            default -> null;
-        };
+        MoveBuffer moves = new MoveBuffer();
+        pieceMoves(board, myPosition.toSquare(), moves);
+        return moves.toMoves();
+    }
+
+    /**
+     * Same as {@link #pieceMoves(ChessBoard, ChessPosition)}, but adds the moves to a
+     * reusable buffer as packed ints instead of allocating a collection
+     */
+    public void pieceMoves(ChessBoard board, int square, MoveBuffer moves) {
+        switch (pieceType) {
+            case BISHOP -> BishopMoves.makeMoves(board, square, moves);
+            case KING -> KingMoves.makeMoves(board, square, moves);
+            case KNIGHT -> KnightMoves.makeMoves(board, square, moves);
+            case ROOK -> RookMoves.makeMoves(board, square, moves);
+            case QUEEN -> QueenMoves.makeMoves(board, square, moves);
+            case PAWN -> PawnMoves.makeMoves(board, square, moves);
+        }
     }
 
     @Override
@@ -10,6 +10,14 @@ import java.util.Objects;
  */
 public class ChessPosition {
 
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
+
     private final int row;
     private final int col;
 
@@ -18,6 +26,45 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared position for a square index, where a1 is 0 and h8 is 63
+     */
+    public static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
+    public static ChessPosition of(int row, int col) {
+        return SQUARES[toSquare(row, col)];
+    }
+
+    /**
+     * @throws IllegalArgumentException if the row or column is off the board
+     */
+    public static int toSquare(int row, int col) {
+        if (!isOnBoard(row, col)) {
+            throw new IllegalArgumentException("Off the board: row " + row + ", column " + col);
+        }
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    /**
+     * @return whether row and col are both 1 to 8
+     */
+    public static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    public boolean isOnBoard() {
+        return isOnBoard(row, col);
+    }
+
+    /**
+     * @return the square index of this position, a1 is 0 and h8 is 63
+     */
+    public int toSquare() {
+        return toSquare(row, col);
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -0,0 +1,91 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Only piece placement and the
+ * side to move are used, since the rules engine has no castling or en passant.
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private static final String PIECE_CHARS = "kqbnrp";
+
+    private Fen() {
+    }
+
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN needs 8 ranks: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_CHARS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw new IllegalArgumentException("Bad FEN rank: " + ranks[i]);
+                }
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col++), ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(fields.length > 1 && fields[1].equals("b") ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        return game;
+    }
+
+    public static String toFen(ChessGame game) {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = PIECE_CHARS.charAt(piece.getPieceType().ordinal());
+                sb.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row > 1) {
+                sb.append('/');
+            }
+        }
+        sb.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b").append(" - - 0 1");
+        return sb.toString();
+    }
+
+    /**
+     * @return the move in coordinate notation, like e2e4 or e7e8q
+     */
+    public static String moveName(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, PackedMove.from(move));
+        appendSquare(sb, PackedMove.to(move));
+        ChessPiece.PieceType promotion = PackedMove.promotion(move);
+        if (promotion != null) {
+            sb.append(PIECE_CHARS.charAt(promotion.ordinal()));
+        }
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + square % 8)).append(square / 8 + 1);
+    }
+}
@@ -0,0 +1,85 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable list of packed moves (see {@link PackedMove}) meant to be cleared and
+ * reused, so generating moves doesn't create garbage.
+ */
+public class MoveBuffer {
+    private int[] moves;
+    private int size;
+
+    public MoveBuffer() {
+        this(64);
+    }
+
+    public MoveBuffer(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            int[] grown = new int[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, size);
+            moves = grown;
+        }
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drops every move from the given index on
+     */
+    public void truncate(int newSize) {
+        size = newSize;
+    }
+
+    /**
+     * @return true if the buffer holds the move, ignoring flags
+     */
+    public boolean contains(int move) {
+        int target = PackedMove.withoutFlags(move);
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.withoutFlags(moves[i]) == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<ChessMove> toMoves() {
+        return toMoves(0);
+    }
+
+    /**
+     * @return ChessMoves for every move from the given index on
+     */
+    public List<ChessMove> toMoves(int fromIndex) {
+        List<ChessMove> list = new ArrayList<>(size - fromIndex);
+        for (int i = fromIndex; i < size; i++) {
+            list.add(PackedMove.toChessMove(moves[i]));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,67 @@
+package chess;
+
+/**
+ * Encodes a move in a single int so move generation doesn't need to allocate
+ * ChessMove and ChessPosition objects.
+ * <p>
+ * Bits 0-5 hold the start square, bits 6-11 the end square (a1 is 0 and h8 is 63),
+ * bits 12-14 the promotion piece (0 for none, otherwise PieceType ordinal + 1) and
+ * the bits above that hold flags.
+ */
+public final class PackedMove {
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PAWN_PUSH = 1 << 16;
+
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] PROMOTIONS = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        int move = from | (to << 6) | flags;
+        if (promotion != null) {
+            move |= (promotion.ordinal() + 1) << 12;
+        }
+        return move;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * @return the piece a pawn promotes to, or null if this isn't a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> 12) & 7;
+        return promotion == 0 ? null : PROMOTIONS[promotion - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    /**
+     * @return the move without its flags, so two encodings of the same ChessMove compare equal
+     */
+    public static int withoutFlags(int move) {
+        return move & MOVE_MASK;
+    }
+
+    public static int fromChessMove(ChessMove move) {
+        return of(move.getStartPosition().toSquare(), move.getEndPosition().toSquare(), move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+}
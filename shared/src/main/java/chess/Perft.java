@@ -0,0 +1,90 @@
+package chess;
+
+import MoveRules.LegalMoves;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The counts for well
+ * known positions are published, so a mismatch points at a move generation bug, and
+ * the time taken is a plain measure of move generation speed.
+ * <p>
+ * Usage: {@code java -cp shared.jar chess.Perft <depth> [fen] [divide]}
+ */
+public class Perft {
+    private final ChessGame game;
+    private final MoveBuffer[] buffers;
+
+    public Perft(ChessGame game, int maxDepth) {
+        this.game = game;
+        this.buffers = new MoveBuffer[maxDepth + 1];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new MoveBuffer();
+        }
+    }
+
+    public long perft(int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        MoveBuffer moves = buffers[depth];
+        moves.clear();
+        LegalMoves.generate(game.getBoard(), game.getTeamTurn(), moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.doMove(move);
+            nodes += perft(depth - 1);
+            game.undoMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * @return node counts below each legal move of the current position, keyed by the move
+     * in coordinate notation
+     */
+    public Map<String, Long> divide(int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        MoveBuffer moves = new MoveBuffer();
+        LegalMoves.generate(game.getBoard(), game.getTeamTurn(), moves);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            game.doMove(move);
+            counts.put(Fen.moveName(move), perft(depth - 1));
+            game.undoMove();
+        }
+        return counts;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: chess.Perft <depth> [fen] [divide]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? args[1] : Fen.START_POSITION;
+        boolean divide = args.length > 2 && args[2].equals("divide");
+
+        Perft perft = new Perft(Fen.parse(fen), depth);
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (var entry : perft.divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        } else {
+            nodes = perft.perft(depth);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("Nodes: %d%nTime: %.3f s%nNodes/s: %.0f%n", nodes, seconds, nodes / seconds);
+    }
+}
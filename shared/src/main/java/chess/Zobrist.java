@@ -0,0 +1,65 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the keys of every
+ * piece on its square, plus the side key when black is to move, so it can be updated
+ * with one XOR per change instead of being recomputed.
+ * <p>
+ * The keys come from a fixed-seed SplitMix64 sequence, so every JVM (client or server)
+ * computes the same key for the same position. Castling and en passant keys are drawn
+ * now so that adding those rules later doesn't shift any existing key.
+ */
+public final class Zobrist {
+    private static final long[][] PIECES = new long[12][64];
+    private static final long SIDE;
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+
+    static {
+        long state = 0x2400_C4E5_5L;
+        for (long[] squares : PIECES) {
+            for (int square = 0; square < 64; square++) {
+                state += 0x9E3779B97F4A7C15L;
+                squares[square] = mix(state);
+            }
+        }
+        state += 0x9E3779B97F4A7C15L;
+        SIDE = mix(state);
+        for (int i = 0; i < CASTLING.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            CASTLING[i] = mix(state);
+        }
+        for (int i = 0; i < EN_PASSANT.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            EN_PASSANT[i] = mix(state);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(ChessPiece piece, int square) {
+        return PIECES[piece.index()][square];
+    }
+
+    /**
+     * @return key XORed in when black is to move
+     */
+    public static long side() {
+        return SIDE;
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int file) {
+        return EN_PASSANT[file];
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
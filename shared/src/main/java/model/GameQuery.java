@@ -0,0 +1,42 @@
+package model;
+
+/**
+ * One page of the game list: games with ids above afterGameID, lowest id first
+ *
+ * @param afterGameID   cursor, the last id of the previous page or 0 for the first page
+ * @param limit         most games to return
+ * @param openSeatsOnly only games with a free seat
+ * @param player        only games this user plays in, or null for anyone's
+ * @param namePrefix    only games whose name starts with this, ignoring case, or null for any name
+ */
+public record GameQuery(int afterGameID, int limit, boolean openSeatsOnly, String player, String namePrefix) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public GameQuery {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+    }
+
+    public static GameQuery firstPage() {
+        return new GameQuery(0, DEFAULT_LIMIT, false, null, null);
+    }
+
+    public GameQuery withLimit(int limit) {
+        return new GameQuery(afterGameID, limit, openSeatsOnly, player, namePrefix);
+    }
+
+    /**
+     * @return whether the game passes this query's filters, ignoring the cursor and limit
+     */
+    public boolean matches(GameSummary game) {
+        if (openSeatsOnly && game.whiteUsername() != null && game.blackUsername() != null) {
+            return false;
+        }
+        if (player != null && !player.equals(game.whiteUsername()) && !player.equals(game.blackUsername())) {
+            return false;
+        }
+        return namePrefix == null || (game.gameName() != null && game.gameName().regionMatches(true, 0, namePrefix, 0, namePrefix.length()));
+    }
+}
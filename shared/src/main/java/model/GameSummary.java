@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * What the game list needs to know about a game, without its board
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName) {
+    public static GameSummary of(GameData game) {
+        return new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName());
+    }
+}
@@ -0,0 +1,18 @@
+package websocket.commands;
+
+public class ConnectCommand extends UserGameCommand {
+    // false when missing, so clients that don't know about MOVE keep getting LOAD_GAME
+    private final boolean moveUpdates;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveUpdates) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveUpdates = moveUpdates;
+    }
+
+    /**
+     * @return whether moves should be sent as MOVE messages rather than LOAD_GAME
+     */
+    public boolean wantsMoveUpdates() {
+        return moveUpdates;
+    }
+}
@@ -0,0 +1,42 @@
+package websocket.messages;
+
+import chess.ChessMove;
+import chess.PackedMove;
+
+/**
+ * Sent instead of LOAD_GAME after a move to clients that asked for moves when connecting.
+ * The client plays the move on its own copy of the game; if the copy isn't at ply - 1, or
+ * its Zobrist key afterwards isn't hash, it is out of date and should send RESYNC.
+ * <p>
+ * The move is packed into an int to keep the message small, since it goes to every observer.
+ */
+public class MoveMessage extends ServerMessage {
+    private final int move;
+    private final int ply;
+    private final long hash;
+
+    public MoveMessage(ChessMove move, int ply, long hash) {
+        super(ServerMessageType.MOVE);
+        this.move = PackedMove.fromChessMove(move);
+        this.ply = ply;
+        this.hash = hash;
+    }
+
+    public ChessMove getMove() {
+        return PackedMove.toChessMove(move);
+    }
+
+    /**
+     * @return the game's ply after the move, which numbers the moves of a game in order
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * @return the Zobrist key of the game after the move
+     */
+    public long getHash() {
+        return hash;
+    }
+}
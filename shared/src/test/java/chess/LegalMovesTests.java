@@ -0,0 +1,92 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+public class LegalMovesTests {
+
+    @Test
+    @DisplayName("Legal move generator matches the reference on random games")
+    public void matchesReferenceOnRandomGames() throws InvalidMoveException {
+        Random random = new Random(240);
+        int positions = 0;
+
+        for (int game = 0; game < 200; game++) {
+            ChessGame chessGame = new ChessGame();
+            for (int ply = 0; ply < 150; ply++) {
+                List<ChessMove> turnMoves = new ArrayList<>();
+                for (int square = 0; square < 64; square++) {
+                    ChessPosition position = ChessPosition.of(square);
+                    ChessPiece piece = chessGame.getBoard().getPiece(position);
+                    if (piece == null) {
+                        continue;
+                    }
+
+                    List<ChessMove> expected = new ArrayList<>(chessGame.referenceValidMoves(position));
+                    List<ChessMove> actual = new ArrayList<>(chessGame.validMoves(position));
+                    sort(expected);
+                    sort(actual);
+                    Assertions.assertEquals(expected, actual, "Wrong moves for " + position + " on\n" + chessGame.getBoard());
+
+                    if (piece.getTeamColor() == chessGame.getTeamTurn()) {
+                        turnMoves.addAll(actual);
+                    }
+                }
+                positions++;
+
+                if (turnMoves.isEmpty()) {
+                    break;
+                }
+                chessGame.makeMove(turnMoves.get(random.nextInt(turnMoves.size())));
+            }
+        }
+
+        Assertions.assertTrue(positions > 1000);
+    }
+
+    @Test
+    @DisplayName("Pinned piece can only move along the pin")
+    public void pinnedPiece() {
+        ChessBoard board = new ChessBoard();
+        board.addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        board.addPiece(ChessPosition.of(2, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        board.addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        board.addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+
+        for (ChessMove move : game.validMoves(ChessPosition.of(2, 5))) {
+            Assertions.assertEquals(5, move.getEndPosition().getColumn(), "Pinned rook left the e-file: " + move);
+        }
+        Assertions.assertEquals(6, game.validMoves(ChessPosition.of(2, 5)).size());
+    }
+
+    @Test
+    @DisplayName("Moves from or to off the board are rejected, not wrapped onto another square")
+    public void offBoardMovesAreRejected() {
+        ChessGame game = new ChessGame();
+        // (1, 9) would be a2 if the column wrapped, and a2-a3 is legal
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(
+                new ChessMove(new ChessPosition(1, 9), new ChessPosition(3, 1), null)));
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(
+                new ChessMove(new ChessPosition(2, 1), new ChessPosition(0, 1), null)));
+        Assertions.assertThrows(InvalidMoveException.class, () -> game.makeMove(
+                new ChessMove(null, new ChessPosition(3, 1), null)));
+        Assertions.assertEquals(new ChessGame(), game);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessPosition.toSquare(1, 9));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChessPosition.of(9, 1));
+        Assertions.assertEquals(8, ChessPosition.toSquare(2, 1));
+    }
+
+    private static void sort(List<ChessMove> moves) {
+        moves.sort(Comparator.comparingInt(PackedMove::fromChessMove));
+    }
+}
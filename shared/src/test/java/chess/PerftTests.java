@@ -0,0 +1,49 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Published perft counts. Positions that need castling or en passant at the tested
+ * depth are left out because the rules engine doesn't support them.
+ */
+public class PerftTests {
+
+    @ParameterizedTest(name = "{0} depth {1}")
+    @CsvSource(delimiter = ';', value = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1; 1; 20",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1; 2; 400",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1; 3; 8902",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1; 4; 197281",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1; 2; 191",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10; 1; 46",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10; 2; 2079",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10; 3; 89890",
+            "8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1; 4; 23527",
+            "K1k5/8/P7/8/8/8/8/8 w - - 0 1; 6; 2217",
+            "8/P1k5/K7/8/8/8/8/8 w - - 0 1; 6; 92683",
+            "4k3/1P6/8/8/8/8/K7/8 w - - 0 1; 6; 217342",
+            "8/k1P5/8/1K6/8/8/8/8 w - - 0 1; 7; 567584",
+    })
+    public void perft(String fen, int depth, long expected) {
+        Perft perft = new Perft(Fen.parse(fen), depth);
+        Assertions.assertEquals(expected, perft.perft(depth));
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        Perft perft = new Perft(Fen.parse(Fen.START_POSITION), 3);
+        long total = perft.divide(3).values().stream().mapToLong(Long::longValue).sum();
+        Assertions.assertEquals(20, perft.divide(3).size());
+        Assertions.assertEquals(8902, total);
+    }
+
+    @Test
+    public void fenRoundTrip() {
+        String fen = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 b - - 0 1";
+        Assertions.assertEquals(fen, Fen.toFen(Fen.parse(fen)));
+        Assertions.assertEquals(new ChessGame(), Fen.parse(Fen.START_POSITION));
+    }
+}
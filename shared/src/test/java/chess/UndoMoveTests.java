@@ -0,0 +1,80 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class UndoMoveTests {
+
+    @Test
+    public void undoRestoresEveryPosition() {
+        Random random = new Random(9);
+        for (int game = 0; game < 50; game++) {
+            ChessGame chessGame = new ChessGame();
+            List<String> positions = new ArrayList<>();
+            List<Long> keys = new ArrayList<>();
+            MoveBuffer moves = new MoveBuffer();
+
+            for (int ply = 0; ply < 120; ply++) {
+                moves.clear();
+                MoveRules.LegalMoves.generate(chessGame.getBoard(), chessGame.getTeamTurn(), moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                positions.add(Fen.toFen(chessGame));
+                keys.add(chessGame.getZobristKey());
+                chessGame.doMove(moves.get(random.nextInt(moves.size())));
+            }
+
+            for (int i = positions.size() - 1; i >= 0; i--) {
+                chessGame.undoMove();
+                Assertions.assertEquals(positions.get(i), Fen.toFen(chessGame));
+                Assertions.assertEquals(keys.get(i), chessGame.getZobristKey());
+                Assertions.assertEquals(i, chessGame.getPly());
+            }
+            Assertions.assertEquals(new ChessGame(), chessGame);
+            Assertions.assertEquals(0, chessGame.getUndoDepth());
+        }
+    }
+
+    @Test
+    public void undoPromotionCapture() throws InvalidMoveException {
+        ChessGame game = Fen.parse("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        String before = Fen.toFen(game);
+
+        game.makeMove(new ChessMove(ChessPosition.of(7, 1), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT));
+        Assertions.assertEquals(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT),
+                game.getBoard().getPiece(ChessPosition.of(8, 2)));
+
+        game.undoMove();
+        Assertions.assertEquals(before, Fen.toFen(game));
+    }
+
+    @Test
+    public void undoRestoresGameOver() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        game.setGameOver(true);
+
+        game.undoMove();
+        Assertions.assertFalse(game.isGameOver());
+
+        game.setGameOver(true);
+        game.doMove(PackedMove.fromChessMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null)));
+        game.setGameOver(false);
+        game.undoMove();
+        Assertions.assertTrue(game.isGameOver());
+    }
+
+    @Test
+    public void undoWithoutMoves() {
+        Assertions.assertThrows(IllegalStateException.class, () -> new ChessGame().undoMove());
+    }
+}
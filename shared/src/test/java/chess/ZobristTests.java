@@ -0,0 +1,55 @@
+package chess;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class ZobristTests {
+
+    @Test
+    public void incrementalKeyMatchesRecomputedKey() throws InvalidMoveException {
+        Random random = new Random(8);
+        for (int game = 0; game < 50; game++) {
+            ChessGame chessGame = new ChessGame();
+            for (int ply = 0; ply < 100; ply++) {
+                ChessGame recomputed = Fen.parse(Fen.toFen(chessGame));
+                Assertions.assertEquals(recomputed.getZobristKey(), chessGame.getZobristKey());
+
+                MoveBuffer buffer = new MoveBuffer();
+                MoveRules.LegalMoves.generate(chessGame.getBoard(), chessGame.getTeamTurn(), buffer);
+                List<ChessMove> moves = buffer.toMoves();
+                if (moves.isEmpty()) {
+                    break;
+                }
+                chessGame.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+    }
+
+    @Test
+    public void transpositionsShareKey() throws InvalidMoveException {
+        ChessGame first = new ChessGame();
+        first.makeMove(move("g1", "f3"));
+        first.makeMove(move("g8", "f6"));
+        first.makeMove(move("b1", "c3"));
+
+        ChessGame second = new ChessGame();
+        second.makeMove(move("b1", "c3"));
+        second.makeMove(move("g8", "f6"));
+        second.makeMove(move("g1", "f3"));
+
+        Assertions.assertEquals(first.getZobristKey(), second.getZobristKey());
+        Assertions.assertEquals(first, second);
+        Assertions.assertNotEquals(new ChessGame().getZobristKey(), first.getZobristKey());
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(position(from), position(to), null);
+    }
+
+    private static ChessPosition position(String square) {
+        return ChessPosition.of(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
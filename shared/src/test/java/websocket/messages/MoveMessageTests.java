@@ -0,0 +1,58 @@
+package websocket.messages;
+
+import MoveRules.LegalMoves;
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.MoveBuffer;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+public class MoveMessageTests {
+    private final Gson gson = new Gson();
+
+    @Test
+    public void clientCopyFollowsMoveMessages() throws InvalidMoveException {
+        Random random = new Random(21);
+        ChessGame server = new ChessGame();
+        ChessGame client = gson.fromJson(gson.toJson(new LoadGameMessage(server)), LoadGameMessage.class).getGame();
+
+        for (int ply = 0; ply < 120; ply++) {
+            List<ChessMove> moves = legalMoves(server);
+            if (moves.isEmpty()) {
+                break;
+            }
+            ChessMove move = moves.get(random.nextInt(moves.size()));
+            server.makeMove(move);
+            var sent = new MoveMessage(move, server.getPly(), server.getZobristKey());
+            MoveMessage received = gson.fromJson(gson.toJson(sent), MoveMessage.class);
+
+            Assertions.assertEquals(client.getPly() + 1, received.getPly());
+            client.makeMove(received.getMove());
+            Assertions.assertEquals(received.getHash(), client.getZobristKey());
+        }
+        Assertions.assertEquals(server, client);
+    }
+
+    @Test
+    public void moveMessageIsFarSmallerThanLoadGame() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+
+        int loadGame = gson.toJson(new LoadGameMessage(game)).length();
+        int moveMessage = gson.toJson(new MoveMessage(move, game.getPly(), game.getZobristKey())).length();
+        Assertions.assertTrue(moveMessage * 20 < loadGame, moveMessage + " bytes vs " + loadGame);
+    }
+
+    private static List<ChessMove> legalMoves(ChessGame game) {
+        MoveBuffer buffer = new MoveBuffer();
+        LegalMoves.generate(game.getBoard(), game.getTeamTurn(), buffer);
+        return buffer.toMoves();
+    }
+}